@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import es.jafs.jaiberdroid.annotations.Column;
+import es.jafs.jaiberdroid.annotations.Table;
+
+/**
+ * <p>Annotation processor that generates a mapper class for each class with the @@Table tag. Generated
+ * mappers describe the columns with the values of their @@Column tags, read the rows of a cursor by fixed
+ * positions and put the values of the objects into content values, so Jaiberdroid doesn't need Java
+ * Reflection for these operations.</p>
+ * <p>The processor only checks what it needs to generate the code. The columns are validated, and the
+ * queries of the tables are generated, by Jaiberdroid when it loads the columns described by the mapper.</p>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+@SupportedAnnotationTypes("es.jafs.jaiberdroid.annotations.Table")
+public final class EntityProcessor extends AbstractProcessor {
+	/** Suffix of generated classes. Must be the same of EntityMapper.SUFFIX. */
+	private static final String SUFFIX = "$$Mapper";
+	/** Name of primary key field. */
+	private static final String ID = "_id";
+	/** Tabulator used in generated code. */
+	private static final String TAB = "\t";
+
+
+	/**
+	 * Column of an entity, with the data needed to generate the code.
+	 */
+	private static final class Col {
+		/** Name of the column. */
+		private String name;
+		/** Java type of the attribute. */
+		private String javaType;
+		/** SQLite type of the column (same names of FieldTypes). */
+		private String sqlType;
+		/** Column tag of the attribute. */
+		private Column annotation;
+	}
+
+
+	/**
+	 * Gets the latest source version supported.
+	 * @return Source version supported.
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+
+	/**
+	 * Process the classes with Table tag.
+	 * @param  annotations  Annotations to process.
+	 * @param  environment  Environment of the current round.
+	 * @return True, the annotations are claimed by this processor.
+	 */
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment environment) {
+		for (final Element element : environment.getElementsAnnotatedWith(Table.class)) {
+			if (ElementKind.CLASS.equals(element.getKind())) {
+				try {
+					generate((TypeElement) element);
+				} catch (final IllegalArgumentException e) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element);
+				} catch (final IOException e) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+															"Mapper not generated: " + e.getMessage(), element);
+				}
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Generates the mapper of an entity.
+	 * @param  type  Class of the entity.
+	 * @throws IOException When the source file can't be written.
+	 */
+	private void generate(final TypeElement type) throws IOException {
+		final String table = getTableName(type);
+		final List<Col> columns = getColumns(type);
+		final PackageElement pack = processingEnv.getElementUtils().getPackageOf(type);
+		final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		final String className = binaryName.substring(binaryName.lastIndexOf('.') + 1) + SUFFIX;
+		final String entityName = type.getQualifiedName().toString();
+		final StringBuilder code = new StringBuilder();
+
+		code.append("/* Generated by Jaiberdroid. Do not modify. */\n");
+		if (!pack.isUnnamed()) {
+			code.append("package ").append(pack.getQualifiedName()).append(";\n\n");
+		}
+		code.append("/**\n * Mapper generated for {@link ").append(entityName).append("}.\n */\n");
+		code.append("public final class ").append(className).append(" implements es.jafs.jaiberdroid.EntityMapper<");
+		code.append(entityName).append("> {\n");
+
+		// Columns.
+		code.append(TAB).append("private static final String[] COLUMNS = {");
+		for (final Col column : columns) {
+			code.append(' ');
+			appendString(code, column.name).append(',');
+		}
+		code.append(" };\n\n");
+
+		appendLoadColumns(code, columns);
+		code.append(TAB).append("public String[] getColumns() {\n");
+		code.append(TAB).append(TAB).append("return COLUMNS.clone();\n");
+		code.append(TAB).append("}\n\n");
+
+		appendRead(code, entityName, columns);
+		appendBind(code, entityName, table, columns);
+
+		// Primary key.
+		code.append(TAB).append("public long getId(final ").append(entityName).append(" object) {\n");
+		code.append(TAB).append(TAB).append("return object.").append(getMethodName("get", ID)).append("();\n");
+		code.append(TAB).append("}\n\n");
+		code.append(TAB).append("public void setId(final ").append(entityName).append(" object, final long id) {\n");
+		if (isLongKey(columns)) {
+			code.append(TAB).append(TAB).append("object.").append(getMethodName("set", ID)).append("(id);\n");
+		} else {
+			code.append(TAB).append(TAB).append("if (id > Integer.MAX_VALUE) {\n");
+			code.append(TAB).append(TAB).append(TAB).append("throw new IllegalArgumentException(\"Id \" + id + ");
+			appendString(code, " doesn't fit in the int field _id of table " + table + ". Use a long field.");
+			code.append(");\n");
+			code.append(TAB).append(TAB).append("}\n");
+			code.append(TAB).append(TAB).append("object.").append(getMethodName("set", ID)).append("((int) id);\n");
+		}
+		code.append(TAB).append("}\n");
+		code.append("}\n");
+
+		final Writer writer = processingEnv.getFiler().createSourceFile(
+											pack.isUnnamed() ? className : pack.getQualifiedName() + "." + className,
+											type).openWriter();
+		try {
+			writer.write(code.toString());
+		} finally {
+			writer.close();
+		}
+	}
+
+
+	/**
+	 * Appends the loadColumns method, that describes the columns with the values of their tags.
+	 * @param  code     Generated code.
+	 * @param  columns  Columns of the entity.
+	 */
+	private static void appendLoadColumns(final StringBuilder code, final List<Col> columns) {
+		code.append(TAB).append("public void loadColumns(final es.jafs.jaiberdroid.EntityMapper.ColumnLoader loader)\n");
+		code.append(TAB).append(TAB).append(TAB).append("throws es.jafs.jaiberdroid.JaiberdroidException {\n");
+
+		for (final Col column : columns) {
+			code.append(TAB).append(TAB).append("loader.add(");
+			appendString(code, column.name).append(", ").append(column.javaType).append(".class, ");
+			code.append(column.annotation.primary()).append(", ");
+			code.append(column.annotation.unique()).append(", ");
+			code.append(column.annotation.nullable()).append(", ");
+			appendString(code, column.annotation.defaultValue()).append(", ");
+			code.append(column.annotation.index()).append(", ");
+			code.append(column.annotation.ascOrder()).append(", ");
+			code.append(column.annotation.millis()).append(");\n");
+		}
+
+		code.append(TAB).append("}\n\n");
+	}
+
+
+	/**
+	 * Appends the read method, that creates an object from the current row of a cursor.
+	 * @param  code        Generated code.
+	 * @param  entityName  Name of the entity class.
+	 * @param  columns     Columns of the entity.
+	 */
+	private static void appendRead(final StringBuilder code, final String entityName, final List<Col> columns) {
+		code.append(TAB).append("public ").append(entityName).append(" read(final android.database.Cursor cursor) {\n");
+		code.append(TAB).append(TAB).append("final ").append(entityName).append(" object = new ");
+		code.append(entityName).append("();\n");
+
+		int position = 0;
+		for (final Col column : columns) {
+			final String pos = Integer.toString(position);
+			final String isNull = "cursor.isNull(" + pos + ") ? null : ";
+			String value;
+
+			if ("int".equals(column.javaType)) {
+				value = "cursor.getInt(" + pos + ")";
+			} else if ("java.lang.Integer".equals(column.javaType)) {
+				value = isNull + "Integer.valueOf(cursor.getInt(" + pos + "))";
+			} else if ("long".equals(column.javaType)) {
+				value = "cursor.getLong(" + pos + ")";
+			} else if ("java.lang.Long".equals(column.javaType)) {
+				value = isNull + "Long.valueOf(cursor.getLong(" + pos + "))";
+			} else if ("float".equals(column.javaType)) {
+				value = "cursor.getFloat(" + pos + ")";
+			} else if ("java.lang.Float".equals(column.javaType)) {
+				value = isNull + "Float.valueOf(cursor.getFloat(" + pos + "))";
+			} else if ("double".equals(column.javaType)) {
+				value = "cursor.getDouble(" + pos + ")";
+			} else if ("java.lang.Double".equals(column.javaType)) {
+				value = isNull + "Double.valueOf(cursor.getDouble(" + pos + "))";
+			} else if ("boolean".equals(column.javaType)) {
+				value = "(0 != cursor.getInt(" + pos + ") || \"true\".equals(cursor.getString(" + pos + ")))";
+			} else if ("java.lang.Boolean".equals(column.javaType)) {
+				value = isNull + "Boolean.valueOf(0 != cursor.getInt(" + pos + ") || \"true\".equals(cursor.getString("
+						+ pos + ")))";
+			} else if ("java.util.Date".equals(column.javaType) && column.annotation.millis()) {
+				value = isNull + "new java.util.Date(cursor.getLong(" + pos + "))";
+			} else if ("java.util.Date".equals(column.javaType)) {
+				value = isNull + "new java.util.Date(cursor.getLong(" + pos + ") * 1000L)";
+			} else {
+				value = "cursor.getString(" + pos + ")";
+			}
+
+			code.append(TAB).append(TAB).append("object.").append(getMethodName("set", column.name));
+			code.append('(').append(value).append(");\n");
+			++position;
+		}
+
+		code.append(TAB).append(TAB).append("return object;\n");
+		code.append(TAB).append("}\n\n");
+	}
+
+
+	/**
+	 * Appends the bind method, that puts the values of an object into a content values object.
+	 * @param  code        Generated code.
+	 * @param  entityName  Name of the entity class.
+	 * @param  table       Name of the table.
+	 * @param  columns     Columns of the entity.
+	 */
+	private static void appendBind(final StringBuilder code, final String entityName, final String table,
+									final List<Col> columns) {
+		code.append(TAB).append("public void bind(final ").append(entityName);
+		code.append(" object, final android.content.ContentValues values, final boolean id)\n");
+		code.append(TAB).append(TAB).append(TAB).append("throws es.jafs.jaiberdroid.JaiberdroidException {\n");
+		code.append(TAB).append(TAB).append("Object value;\n");
+
+		for (final Col column : columns) {
+			final String getter = "object." + getGetMethod(column) + "()";
+			String indent = TAB + TAB;
+
+			if (ID.equals(column.name)) {
+				code.append(indent).append("if (id) {\n");
+				indent += TAB;
+			}
+
+			if (isPrimitive(column.javaType)) {
+				code.append(indent).append("values.put(\"").append(column.name).append("\", ");
+				code.append(getter).append(");\n");
+			} else {
+				code.append(indent).append("value = ").append(getter).append(";\n");
+				code.append(indent).append("if (null == value) {\n");
+				if (column.annotation.nullable()) {
+					code.append(indent).append(TAB).append("values.putNull(\"").append(column.name).append("\");\n");
+				} else {
+					code.append(indent).append(TAB).append("throw new es.jafs.jaiberdroid.JaiberdroidException(");
+					appendString(code, "Field " + column.name + " in table " + table + " can't be null");
+					code.append(");\n");
+				}
+				code.append(indent).append("} else {\n");
+				code.append(indent).append(TAB).append("values.put(\"").append(column.name).append("\", ");
+				if ("java.util.Date".equals(column.javaType) && column.annotation.millis()) {
+					code.append("Long.valueOf(((java.util.Date) value).getTime())");
+				} else if ("java.util.Date".equals(column.javaType)) {
+					code.append("Long.valueOf(((java.util.Date) value).getTime() / 1000L)");
+				} else {
+					code.append('(').append(column.javaType).append(") value");
+				}
+				code.append(");\n");
+				code.append(indent).append("}\n");
+			}
+
+			if (ID.equals(column.name)) {
+				code.append(TAB).append(TAB).append("}\n");
+			}
+		}
+
+		code.append(TAB).append("}\n\n");
+	}
+
+
+	/**
+	 * Gets a boolean value that indicates if the primary key is a long.
+	 * @param  columns  Columns of the entity.
+	 * @return Boolean value that is true if the primary key is a long.
+	 */
+	private static boolean isLongKey(final List<Col> columns) {
+		for (final Col column : columns) {
+			if (ID.equals(column.name)) {
+				return "long".equals(column.javaType);
+			}
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Gets the name of the table of an entity.
+	 * @param  type  Class of the entity.
+	 * @return Name of the table.
+	 */
+	private static String getTableName(final TypeElement type) {
+		String name = type.getAnnotation(Table.class).name();
+
+		if (null == name || name.length() == 0) {
+			name = type.getSimpleName().toString();
+		}
+
+		return name;
+	}
+
+
+	/**
+	 * Gets the columns of an entity. Only the types of the columns and the primary key, needed to generate the
+	 * code, are checked.
+	 * @param  type  Class of the entity.
+	 * @return List of columns in declaration order.
+	 * @throws IllegalArgumentException When the code of the entity can't be generated.
+	 */
+	private static List<Col> getColumns(final TypeElement type) {
+		final List<Col> columns = new ArrayList<Col>();
+		boolean key = false;
+
+		for (final VariableElement attribute : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			final Column annotation = attribute.getAnnotation(Column.class);
+			if (null == annotation) {
+				continue;
+			}
+
+			final Col column = new Col();
+			column.name = attribute.getSimpleName().toString();
+			column.javaType = attribute.asType().toString();
+			column.annotation = annotation;
+
+			if (ID.equals(column.name)) {
+				if (!"int".equals(column.javaType) && !"long".equals(column.javaType)) {
+					throw new IllegalArgumentException("Primary key must be of int or long type");
+				}
+				column.sqlType = "INTEGER";
+				key = true;
+			} else {
+				column.sqlType = getSqlType(column.javaType);
+			}
+
+			columns.add(column);
+		}
+
+		if (!key) {
+			throw new IllegalArgumentException("Class " + type.getQualifiedName() + " has no primary key _id");
+		}
+
+		return columns;
+	}
+
+
+	/**
+	 * Gets the SQLite type of a Java type.
+	 * @param  javaType  Name of the Java type.
+	 * @return Name of the SQLite type, as defined in FieldTypes.
+	 * @throws IllegalArgumentException When the type is not supported.
+	 */
+	private static String getSqlType(final String javaType) {
+		String type;
+
+		if ("java.lang.String".equals(javaType)) {
+			type = "TEXT";
+		} else if ("int".equals(javaType) || "java.lang.Integer".equals(javaType) || "long".equals(javaType)
+				|| "java.lang.Long".equals(javaType)) {
+			type = "INTEGER";
+		} else if ("float".equals(javaType) || "double".equals(javaType) || "java.lang.Float".equals(javaType)
+				|| "java.lang.Double".equals(javaType)) {
+			type = "REAL";
+		} else if ("boolean".equals(javaType) || "java.lang.Boolean".equals(javaType)) {
+			type = "BOOLEAN";
+		} else if ("java.util.Date".equals(javaType)) {
+			type = "DATE";
+		} else {
+			throw new IllegalArgumentException("Invalid data type: " + javaType);
+		}
+
+		return type;
+	}
+
+
+	/**
+	 * Checks if a Java type is primitive.
+	 * @param  javaType  Name of the Java type.
+	 * @return Boolean value that is true when data type is primitive.
+	 */
+	private static boolean isPrimitive(final String javaType) {
+		return "int".equals(javaType) || "long".equals(javaType) || "double".equals(javaType)
+				|| "float".equals(javaType) || "boolean".equals(javaType);
+	}
+
+
+	/**
+	 * Gets the name of the get method of a column. Same as JaiberdroidReflection.getMethodGet().
+	 * @param  column  Column of the entity.
+	 * @return Name of the get method.
+	 */
+	private static String getGetMethod(final Col column) {
+		return getMethodName("BOOLEAN".equals(column.sqlType) ? "is" : "get", column.name);
+	}
+
+
+	/**
+	 * Gets a method name for received name and prefix. Same as JaiberdroidReflection.getMethodName().
+	 * @param  prefix  Prefix of the method.
+	 * @param  name    Name of the attribute.
+	 * @return String with the name of the method.
+	 */
+	private static String getMethodName(final String prefix, final String name) {
+		return prefix + name.substring(0, 1).toUpperCase(Locale.getDefault()) + name.substring(1);
+	}
+
+
+	/**
+	 * Appends a Java string literal to generated code.
+	 * @param  code   Generated code.
+	 * @param  value  Value of the string.
+	 * @return The generated code.
+	 */
+	private static StringBuilder appendString(final StringBuilder code, final String value) {
+		code.append('"');
+		for (int i = 0; i < value.length(); ++i) {
+			final char current = value.charAt(i);
+			if ('"' == current || '\\' == current) {
+				code.append('\\');
+			}
+			code.append(current);
+		}
+		code.append('"');
+
+		return code;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+/**
+ * Aggregate function over a column, executed by the database.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+public final class Aggregate {
+	/** Name of the SQL function. */
+	private final String function;
+	/** Name of the column, or null for all the rows. */
+	private final String column;
+	/** Indicates if only distinct values are aggregated. */
+	private final boolean distinct;
+
+
+	/**
+	 * Private constructor for avoid external instances.
+	 * @param  function  Name of the SQL function.
+	 * @param  column    Name of the column, or null for all the rows.
+	 * @param  distinct  Boolean value that is true if only distinct values are aggregated.
+	 */
+	private Aggregate(final String function, final String column, final boolean distinct) {
+		this.function = function;
+		this.column = column;
+		this.distinct = distinct;
+	}
+
+
+	/**
+	 * Creates an aggregate that counts the rows.
+	 * @return Aggregate created.
+	 */
+	public static Aggregate count() {
+		return new Aggregate("COUNT", null, false);
+	}
+
+
+	/**
+	 * Creates an aggregate that counts the distinct values of a column, without nulls.
+	 * @param  column  Name of the column.
+	 * @return Aggregate created.
+	 */
+	public static Aggregate countDistinct(final String column) {
+		return new Aggregate("COUNT", column, true);
+	}
+
+
+	/**
+	 * Creates an aggregate that sums the values of a column.
+	 * @param  column  Name of the column.
+	 * @return Aggregate created.
+	 */
+	public static Aggregate sum(final String column) {
+		return new Aggregate("SUM", column, false);
+	}
+
+
+	/**
+	 * Creates an aggregate that gets the average of the values of a column.
+	 * @param  column  Name of the column.
+	 * @return Aggregate created.
+	 */
+	public static Aggregate avg(final String column) {
+		return new Aggregate("AVG", column, false);
+	}
+
+
+	/**
+	 * Creates an aggregate that gets the minimum value of a column.
+	 * @param  column  Name of the column.
+	 * @return Aggregate created.
+	 */
+	public static Aggregate min(final String column) {
+		return new Aggregate("MIN", column, false);
+	}
+
+
+	/**
+	 * Creates an aggregate that gets the maximum value of a column.
+	 * @param  column  Name of the column.
+	 * @return Aggregate created.
+	 */
+	public static Aggregate max(final String column) {
+		return new Aggregate("MAX", column, false);
+	}
+
+
+	/**
+	 * Gets the SQL expression of the aggregate, checking that the column is in an entity.
+	 * @param  entity  Entity of the query.
+	 * @return String with the SQL expression.
+	 * @throws JaiberdroidException When the column is not in the entity.
+	 */
+	String getSql(final Entity entity) throws JaiberdroidException {
+		final StringBuilder objSql = new StringBuilder(function);
+
+		objSql.append('(');
+		if (null == column) {
+			objSql.append('*');
+		} else {
+			entity.getField(column);
+			if (distinct) {
+				objSql.append("DISTINCT ");
+			}
+			objSql.append(column);
+		}
+		objSql.append(')');
+
+		return objSql.toString();
+	}
+
+
+	/**
+	 * Gets a string with the content of the aggregate.
+	 * @return String with the content of the aggregate.
+	 */
+	@Override
+	public String toString() {
+		return function + '(' + (distinct ? "DISTINCT " : "") + (null != column ? column : "*") + ')';
+	}
+}
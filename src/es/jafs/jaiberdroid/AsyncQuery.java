@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * <p>Executes the operations of a GenericQuery in background. Each operation returns a Future, and can receive
+ * a callback that is called when it finishes.</p>
+ * <p>By default, operations are executed in a pool of {@link #DEFAULT_THREADS} threads shared by all the async
+ * queries, and callbacks are called in the thread of the operation. Any Executor can be used for both, like
+ * {@link #mainThread()} to receive the results in the UI thread.</p>
+ * <p>When a Future is cancelled, a select that is running is stopped with a CancellationSignal (since Android
+ * 4.1). Other operations are only cancelled if they have not started.</p>
+ * <pre>
+ *   final AsyncQuery&lt;File&gt; async = new AsyncQuery&lt;File&gt;(query, AsyncQuery.mainThread());
+ *   async.getAll(new AsyncQuery.Callback&lt;List&lt;File&gt;&gt;() {
+ *     public void onResult(final List&lt;File&gt; files) { ... }
+ *     public void onError(final JaiberdroidException e) { ... }
+ *   });
+ * </pre>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ * @param <T> Class of entity.
+ */
+public class AsyncQuery<T> {
+	/** Number of threads of the default executor. */
+	public static final int DEFAULT_THREADS = 2;
+
+	/** Default executor of the operations, created when it's used. */
+	private static ExecutorService defaultExecutor;
+	/** Executor that calls the callbacks in the main thread, created when it's used. */
+	private static Executor mainThread;
+
+	/** Query that executes the operations. */
+	private final GenericQuery<T> query;
+	/** Executor of the operations. */
+	private final Executor executor;
+	/** Executor of the callbacks, or null to call them in the thread of the operation. */
+	private final Executor callbackExecutor;
+
+
+	/**
+	 * Operation executed over a query.
+	 * @param <T> Class of entity.
+	 * @param <R> Class of the result.
+	 */
+	public interface Operation<T, R> {
+		/**
+		 * Executes the operation.
+		 * @param  query  Query of the entity.
+		 * @return Result of the operation.
+		 * @throws JaiberdroidException When there is an error on query.
+		 */
+		R execute(GenericQuery<T> query) throws JaiberdroidException;
+	}
+
+
+	/**
+	 * Receives the result of an operation. Is not called when the operation is cancelled.
+	 * @param <R> Class of the result.
+	 */
+	public interface Callback<R> {
+		/**
+		 * Called when the operation finishes.
+		 * @param  result  Result of the operation.
+		 */
+		void onResult(R result);
+
+
+		/**
+		 * Called when the operation fails.
+		 * @param  e  Error of the operation.
+		 */
+		void onError(JaiberdroidException e);
+	}
+
+
+	/**
+	 * Creates an async query that uses the default executor, and calls the callbacks in the thread of the
+	 * operation.
+	 * @param  query  Query that executes the operations.
+	 */
+	public AsyncQuery(final GenericQuery<T> query) {
+		this(query, null, null);
+	}
+
+
+	/**
+	 * Creates an async query that uses the default executor.
+	 * @param  query             Query that executes the operations.
+	 * @param  callbackExecutor  Executor of the callbacks, or null to call them in the thread of the operation.
+	 */
+	public AsyncQuery(final GenericQuery<T> query, final Executor callbackExecutor) {
+		this(query, null, callbackExecutor);
+	}
+
+
+	/**
+	 * Creates an async query.
+	 * @param  query             Query that executes the operations.
+	 * @param  executor          Executor of the operations, or null to use the default executor.
+	 * @param  callbackExecutor  Executor of the callbacks, or null to call them in the thread of the operation.
+	 */
+	public AsyncQuery(final GenericQuery<T> query, final Executor executor, final Executor callbackExecutor) {
+		this.query = query;
+		this.executor = (null != executor) ? executor : getDefaultExecutor();
+		this.callbackExecutor = callbackExecutor;
+	}
+
+
+	/**
+	 * Gets the default executor of the operations, a pool of {@link #DEFAULT_THREADS} daemon threads.
+	 * @return Default executor.
+	 */
+	public static synchronized ExecutorService getDefaultExecutor() {
+		if (null == defaultExecutor) {
+			defaultExecutor = Executors.newFixedThreadPool(DEFAULT_THREADS, new ThreadFactory() {
+				/** Number of the next thread. */
+				private final AtomicInteger number = new AtomicInteger(1);
+
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "jaiberdroid-" + number.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return defaultExecutor;
+	}
+
+
+	/**
+	 * Gets an executor that runs the tasks in the main thread of the application.
+	 * @return Executor of the main thread.
+	 */
+	public static synchronized Executor mainThread() {
+		if (null == mainThread) {
+			final Handler handler = new Handler(Looper.getMainLooper());
+			mainThread = new Executor() {
+				@Override
+				public void execute(final Runnable runnable) {
+					handler.post(runnable);
+				}
+			};
+		}
+
+		return mainThread;
+	}
+
+
+	/**
+	 * Executes an operation in background.
+	 * @param  operation  Operation to execute.
+	 * @param  callback   Callback of the result. Can be null.
+	 * @return Future with the result of the operation.
+	 */
+	public <R> Future<R> submit(final Operation<T, R> operation, final Callback<R> callback) {
+		final QueryTask<R> task = new QueryTask<R>(new Callable<R>() {
+			@Override
+			public R call() throws JaiberdroidException {
+				return operation.execute(query);
+			}
+		}, callback);
+
+		executor.execute(task);
+
+		return task;
+	}
+
+
+	/**
+	 * Gets all the elements of the table in background.
+	 * @param  callback  Callback of the result. Can be null.
+	 * @return Future with the list of elements.
+	 */
+	public Future<List<T>> getAll(final Callback<List<T>> callback) {
+		return submit(new Operation<T, List<T>>() {
+			@Override
+			public List<T> execute(final GenericQuery<T> query) throws JaiberdroidException {
+				return query.getAll();
+			}
+		}, callback);
+	}
+
+
+	/**
+	 * Gets a page of elements of the table in background.
+	 * @param  offset    Number of rows skipped.
+	 * @param  limit     Maximum number of rows of the page.
+	 * @param  order     Order of the rows. If null, rows are ordered by id.
+	 * @param  callback  Callback of the result. Can be null.
+	 * @return Future with the list of elements of the page.
+	 */
+	public Future<List<T>> page(final int offset, final int limit, final Order order,
+								final Callback<List<T>> callback) {
+		return submit(new Operation<T, List<T>>() {
+			@Override
+			public List<T> execute(final GenericQuery<T> query) throws JaiberdroidException {
+				return query.page(offset, limit, order);
+			}
+		}, callback);
+	}
+
+
+	/**
+	 * Finds an object with its PK in background.
+	 * @param  id        Id of the object to find.
+	 * @param  callback  Callback of the result. Can be null.
+	 * @return Future with the object, or null if not exists.
+	 */
+	public Future<T> findByPk(final long id, final Callback<T> callback) {
+		return submit(new Operation<T, T>() {
+			@Override
+			public T execute(final GenericQuery<T> query) throws JaiberdroidException {
+				return query.findByPk(id);
+			}
+		}, callback);
+	}
+
+
+	/**
+	 * Counts the rows of the table in background.
+	 * @param  callback  Callback of the result. Can be null.
+	 * @return Future with the number of rows.
+	 */
+	public Future<Long> count(final Callback<Long> callback) {
+		return submit(new Operation<T, Long>() {
+			@Override
+			public Long execute(final GenericQuery<T> query) throws JaiberdroidException {
+				return query.count();
+			}
+		}, callback);
+	}
+
+
+	/**
+	 * Inserts an object in background.
+	 * @param  object    Object to insert.
+	 * @param  callback  Callback of the result. Can be null.
+	 * @return Future with a boolean value that is true if the object is inserted.
+	 */
+	public Future<Boolean> insert(final T object, final Callback<Boolean> callback) {
+		return submit(new Operation<T, Boolean>() {
+			@Override
+			public Boolean execute(final GenericQuery<T> query) throws JaiberdroidException {
+				return query.insert(object);
+			}
+		}, callback);
+	}
+
+
+	/**
+	 * Inserts a collection of objects in background, in one transaction.
+	 * @param  objects   Objects to insert.
+	 * @param  callback  Callback of the result. Can be null.
+	 * @return Future with the number of rows inserted.
+	 */
+	public Future<long[]> insertAll(final Collection<T> objects, final Callback<long[]> callback) {
+		return submit(new Operation<T, long[]>() {
+			@Override
+			public long[] execute(final GenericQuery<T> query) throws JaiberdroidException {
+				return query.insertAll(objects);
+			}
+		}, callback);
+	}
+
+
+	/**
+	 * Updates an object in background.
+	 * @param  object    Object to update.
+	 * @param  callback  Callback of the result. Can be null.
+	 * @return Future with a boolean value that is true if the object is updated.
+	 */
+	public Future<Boolean> update(final T object, final Callback<Boolean> callback) {
+		return submit(new Operation<T, Boolean>() {
+			@Override
+			public Boolean execute(final GenericQuery<T> query) throws JaiberdroidException {
+				return query.update(object);
+			}
+		}, callback);
+	}
+
+
+	/**
+	 * Removes an object in background.
+	 * @param  id        Id of the object to remove.
+	 * @param  callback  Callback of the result. Can be null.
+	 * @return Future with a boolean value that is true if the object is removed.
+	 */
+	public Future<Boolean> remove(final long id, final Callback<Boolean> callback) {
+		return submit(new Operation<T, Boolean>() {
+			@Override
+			public Boolean execute(final GenericQuery<T> query) throws JaiberdroidException {
+				return query.remove(id);
+			}
+		}, callback);
+	}
+
+
+	/**
+	 * Task of an operation, that calls the callback when it finishes and stops the running select when it's
+	 * cancelled.
+	 * @param <R> Class of the result.
+	 */
+	private final class QueryTask<R> extends FutureTask<R> {
+		/** Callback of the result, or null. */
+		private final Callback<R> callback;
+		/** Cancellation signal of the running operation, or null. */
+		private volatile Object signal;
+
+
+		/**
+		 * Creates a task.
+		 * @param  callable  Operation to execute.
+		 * @param  callback  Callback of the result. Can be null.
+		 */
+		QueryTask(final Callable<R> callable, final Callback<R> callback) {
+			super(callable);
+			this.callback = callback;
+		}
+
+
+		/**
+		 * Executes the operation, with a cancellation signal for the selects.
+		 */
+		@Override
+		public void run() {
+			// Cancellation signals are only available since Jelly Bean.
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+				signal = new CancellationSignal();
+			}
+
+			QueryManager.setCancellationSignal(signal);
+			try {
+				super.run();
+			} finally {
+				QueryManager.setCancellationSignal(null);
+			}
+		}
+
+
+		/**
+		 * Cancels the operation, stopping the select that is running.
+		 * @param  mayInterruptIfRunning  Boolean value that indicates if the thread can be interrupted.
+		 * @return Boolean value that is false if the operation can't be cancelled.
+		 */
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			final boolean cancelled = super.cancel(mayInterruptIfRunning);
+			final Object current = signal;
+
+			if (cancelled && null != current) {
+				((CancellationSignal) current).cancel();
+			}
+
+			return cancelled;
+		}
+
+
+		/**
+		 * Calls the callback when the operation finishes, unless it's cancelled.
+		 */
+		@Override
+		protected void done() {
+			if (null == callback || isCancelled()) {
+				return;
+			}
+
+			final Runnable delivery = new Runnable() {
+				@Override
+				public void run() {
+					try {
+						callback.onResult(get());
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (final ExecutionException e) {
+						if (e.getCause() instanceof JaiberdroidException) {
+							callback.onError((JaiberdroidException) e.getCause());
+						} else {
+							callback.onError(new JaiberdroidException("Executing operation: " + e.getCause()));
+						}
+					}
+				}
+			};
+
+			if (null != callbackExecutor) {
+				callbackExecutor.execute(delivery);
+			} else {
+				delivery.run();
+			}
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import android.util.Log;
+
+/**
+ * Listeners of the changes of the entities. Listeners can be added and removed from any thread.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+final class ChangeBus {
+	/** Listeners of each table. */
+	private final ConcurrentHashMap<String, List<Registration>> listeners =
+												new ConcurrentHashMap<String, List<Registration>>();
+
+
+	/**
+	 * Listener added to a table.
+	 */
+	private static final class Registration {
+		/** Listener of the changes. */
+		private final ChangeEvent.Listener listener;
+		/** Executor where the listener is called, or null to call it in the thread of the changes. */
+		private final Executor executor;
+
+
+		/**
+		 * Creates a registration.
+		 * @param  listener  Listener of the changes.
+		 * @param  executor  Executor where the listener is called, or null.
+		 */
+		private Registration(final ChangeEvent.Listener listener, final Executor executor) {
+			this.listener = listener;
+			this.executor = executor;
+		}
+	}
+
+
+	/**
+	 * Adds a listener of the changes of a table.
+	 * @param  table     Name of the table.
+	 * @param  listener  Listener of the changes.
+	 * @param  executor  Executor where the listener is called, or null to call it in the thread of the changes.
+	 */
+	void add(final String table, final ChangeEvent.Listener listener, final Executor executor) {
+		List<Registration> registrations = listeners.get(table);
+
+		if (null == registrations) {
+			listeners.putIfAbsent(table, new CopyOnWriteArrayList<Registration>());
+			registrations = listeners.get(table);
+		}
+		registrations.add(new Registration(listener, executor));
+	}
+
+
+	/**
+	 * Removes a listener of the changes of a table.
+	 * @param  table     Name of the table.
+	 * @param  listener  Listener to remove.
+	 */
+	void remove(final String table, final ChangeEvent.Listener listener) {
+		final List<Registration> registrations = listeners.get(table);
+
+		if (null != registrations) {
+			for (final Registration registration : registrations) {
+				if (registration.listener == listener) {
+					registrations.remove(registration);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Checks if a table has listeners, so its changes must be recorded.
+	 * @param  table  Name of the table.
+	 * @return Boolean value that is true if the table has listeners.
+	 */
+	boolean hasListeners(final String table) {
+		final List<Registration> registrations = listeners.get(table);
+
+		return null != registrations && !registrations.isEmpty();
+	}
+
+
+	/**
+	 * Publishes the events of a set of changes to their listeners. Errors of the listeners are logged.
+	 * @param  changes  Changes committed.
+	 */
+	void publish(final ChangeSet changes) {
+		for (final ChangeEvent event : changes.getEvents()) {
+			final List<Registration> registrations = listeners.get(event.getTable());
+			if (null == registrations) {
+				continue;
+			}
+
+			if (JaiberdroidInstance.isDebug()) {
+				Log.d(JaiberdroidInstance.LOG_TAG, "Change " + event);
+			}
+			for (final Registration registration : registrations) {
+				if (null != registration.executor) {
+					registration.executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							call(registration.listener, event);
+						}
+					});
+				} else {
+					call(registration.listener, event);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Calls a listener, logging its errors so they don't stop the other listeners.
+	 * @param  listener  Listener to call.
+	 * @param  event     Event of the changes.
+	 */
+	private static void call(final ChangeEvent.Listener listener, final ChangeEvent event) {
+		try {
+			listener.onChange(event);
+		} catch (final RuntimeException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "Error in listener of " + event.getTable() + ": " + e.getMessage(),
+				  e);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.Collections;
+import java.util.Set;
+
+import es.jafs.jaiberdroid.Query.Type;
+
+/**
+ * <p>Changes made to the table of an entity, published to its listeners after they are committed. The
+ * changes of a transaction, or of a batch insert, are published in only one event for each table, with all
+ * the operations and the ids of the rows changed.</p>
+ * <p>The ids are only known when the rows are inserted, updated or removed by their id. When some rows are
+ * not known, like in removeAll() or in SQL queries, the event has no ids. Rows replaced by upsert() are
+ * published as inserted.</p>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+public final class ChangeEvent {
+	/** Entity class of the table. */
+	@SuppressWarnings("rawtypes")
+	private final Class entityClass;
+	/** Name of the table. */
+	private final String table;
+	/** Operations executed in the table. */
+	private final Set<Type> operations;
+	/** Ids of the rows changed, or null if they are not known. */
+	private final long[] ids;
+
+
+	/**
+	 * Listener of the changes of an entity.
+	 */
+	public interface Listener {
+		/**
+		 * Called when changes of the entity are committed. It's called in the thread that committed them,
+		 * unless the listener was added with an executor.
+		 * @param  event  Changes committed.
+		 */
+		void onChange(ChangeEvent event);
+	}
+
+
+	/**
+	 * Creates an event.
+	 * @param  entityClass  Entity class of the table.
+	 * @param  table        Name of the table.
+	 * @param  operations   Operations executed in the table.
+	 * @param  ids          Ids of the rows changed, or null if they are not known.
+	 */
+	@SuppressWarnings("rawtypes")
+	ChangeEvent(final Class entityClass, final String table, final Set<Type> operations, final long[] ids) {
+		this.entityClass = entityClass;
+		this.table = table;
+		this.operations = Collections.unmodifiableSet(operations);
+		this.ids = ids;
+	}
+
+
+	/**
+	 * Gets the entity class of the table changed.
+	 * @return Entity class.
+	 */
+	@SuppressWarnings("rawtypes")
+	public Class getEntityClass() {
+		return entityClass;
+	}
+
+
+	/**
+	 * Gets the name of the table changed.
+	 * @return Name of the table.
+	 */
+	public String getTable() {
+		return table;
+	}
+
+
+	/**
+	 * Gets the operations executed in the table: INSERT, UPDATE or DELETE.
+	 * @return Set with the operations.
+	 */
+	public Set<Type> getOperations() {
+		return operations;
+	}
+
+
+	/**
+	 * Gets the ids of the rows inserted, updated or deleted. The array must not be modified.
+	 * @return Array with the ids, or null if some of the rows changed are not known.
+	 */
+	public long[] getIds() {
+		return ids;
+	}
+
+
+	/**
+	 * Gets a string with content of the event.
+	 * @return String with content of the event.
+	 */
+	@Override
+	public String toString() {
+		return table + " " + operations + " " + (null != ids ? ids.length + " ids" : "unknown rows");
+	}
+}
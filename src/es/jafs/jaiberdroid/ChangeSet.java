@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import es.jafs.jaiberdroid.Query.Type;
+
+/**
+ * Changes made to the tables that are not published yet. The changes of each table are coalesced into only
+ * one event.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+final class ChangeSet {
+	/** Changes of each table, in the order they were made. */
+	private final Map<String, Change> changes = new LinkedHashMap<String, Change>();
+
+
+	/**
+	 * Changes made to a table.
+	 */
+	private static final class Change {
+		/** Entity of the table. */
+		private final Entity entity;
+		/** Operations executed. */
+		private final Set<Type> operations = EnumSet.noneOf(Type.class);
+		/** Ids of the rows changed, or null if they are not known. */
+		private long[] ids = new long[8];
+		/** Number of ids stored. */
+		private int size = 0;
+
+
+		/**
+		 * Creates the changes of a table.
+		 * @param  entity  Entity of the table.
+		 */
+		private Change(final Entity entity) {
+			this.entity = entity;
+		}
+	}
+
+
+	/**
+	 * Adds a change.
+	 * @param  entity     Entity of the table changed.
+	 * @param  operation  Operation executed.
+	 * @param  id         Id of the row changed, or -1 if the rows are not known.
+	 */
+	void add(final Entity entity, final Type operation, final long id) {
+		final Change change = getChange(entity);
+
+		change.operations.add(operation);
+		addId(change, id);
+	}
+
+
+	/**
+	 * Adds all the changes of other set, after the changes of this one.
+	 * @param  changeSet  Set with the changes to add.
+	 */
+	void addAll(final ChangeSet changeSet) {
+		for (final Change other : changeSet.changes.values()) {
+			final Change change = getChange(other.entity);
+
+			change.operations.addAll(other.operations);
+			if (null == other.ids) {
+				addId(change, -1);
+			} else {
+				for (int i = 0; i < other.size; ++i) {
+					addId(change, other.ids[i]);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Checks if there are no changes.
+	 * @return Boolean value that is true if there are no changes.
+	 */
+	boolean isEmpty() {
+		return changes.isEmpty();
+	}
+
+
+	/**
+	 * Gets an event for each table changed.
+	 * @return List with the events.
+	 */
+	List<ChangeEvent> getEvents() {
+		final List<ChangeEvent> events = new ArrayList<ChangeEvent>(changes.size());
+
+		for (final Change change : changes.values()) {
+			long[] ids = null;
+			if (null != change.ids) {
+				ids = new long[change.size];
+				System.arraycopy(change.ids, 0, ids, 0, change.size);
+			}
+			events.add(new ChangeEvent(change.entity.getReferenced(), change.entity.getTableName(),
+										change.operations, ids));
+		}
+
+		return events;
+	}
+
+
+	/**
+	 * Gets the changes of the table of an entity, creating them if there are not changes yet.
+	 * @param  entity  Entity of the table.
+	 * @return Changes of the table.
+	 */
+	private Change getChange(final Entity entity) {
+		Change change = changes.get(entity.getTableName());
+
+		if (null == change) {
+			change = new Change(entity);
+			changes.put(entity.getTableName(), change);
+		}
+
+		return change;
+	}
+
+
+	/**
+	 * Adds the id of a row changed.
+	 * @param  change  Changes of the table.
+	 * @param  id      Id of the row changed, or -1 if the rows are not known.
+	 */
+	private static void addId(final Change change, final long id) {
+		if (-1 == id) {
+			change.ids = null;
+		} else if (null != change.ids) {
+			if (change.size == change.ids.length) {
+				final long[] ids = new long[change.size * 2];
+				System.arraycopy(change.ids, 0, ids, 0, change.size);
+				change.ids = ids;
+			}
+			change.ids[change.size++] = id;
+		}
+	}
+}
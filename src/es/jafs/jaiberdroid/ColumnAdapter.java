@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.Date;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+/**
+ * Conversions between the Java types of the attributes and the values stored in database. Each field has
+ * its adapter, selected when the entity is loaded. Values are written with their native types, so numbers
+ * are not formatted as strings and parsed again by SQLite.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+enum ColumnAdapter {
+	/** Attributes of type int or Integer. */
+	INT {
+		@Override
+		Object read(final Cursor cursor, final int pos) {
+			return cursor.getInt(pos);
+		}
+
+
+		@Override
+		void put(final ContentValues values, final String name, final Object value) {
+			values.put(name, (Integer) value);
+		}
+	},
+	/** Attributes of type long or Long. */
+	LONG {
+		@Override
+		Object read(final Cursor cursor, final int pos) {
+			return cursor.getLong(pos);
+		}
+
+
+		@Override
+		void put(final ContentValues values, final String name, final Object value) {
+			values.put(name, (Long) value);
+		}
+	},
+	/** Attributes of type float or Float. */
+	FLOAT {
+		@Override
+		Object read(final Cursor cursor, final int pos) {
+			return cursor.getFloat(pos);
+		}
+
+
+		@Override
+		void put(final ContentValues values, final String name, final Object value) {
+			values.put(name, (Float) value);
+		}
+	},
+	/** Attributes of type double or Double. */
+	DOUBLE {
+		@Override
+		Object read(final Cursor cursor, final int pos) {
+			return cursor.getDouble(pos);
+		}
+
+
+		@Override
+		void put(final ContentValues values, final String name, final Object value) {
+			values.put(name, (Double) value);
+		}
+	},
+	/** Attributes of type boolean or Boolean. */
+	BOOLEAN {
+		@Override
+		Object read(final Cursor cursor, final int pos) {
+			// Rows written by previous versions store the text true or false.
+			return 0 != cursor.getInt(pos) || "true".equals(cursor.getString(pos));
+		}
+
+
+		@Override
+		void put(final ContentValues values, final String name, final Object value) {
+			values.put(name, (Boolean) value);
+		}
+
+
+		@Override
+		String toArg(final Object value) {
+			return ((Boolean) value) ? "1" : "0";
+		}
+	},
+	/** Attributes of type String. */
+	STRING {
+		@Override
+		Object read(final Cursor cursor, final int pos) {
+			return cursor.getString(pos);
+		}
+
+
+		@Override
+		void put(final ContentValues values, final String name, final Object value) {
+			values.put(name, (String) value);
+		}
+	},
+	/** Attributes of type Date, stored as Unix Time in seconds. */
+	DATE {
+		@Override
+		Object read(final Cursor cursor, final int pos) {
+			return new Date(cursor.getLong(pos) * 1000);
+		}
+
+
+		@Override
+		void put(final ContentValues values, final String name, final Object value) {
+			values.put(name, ((Date) value).getTime() / 1000);
+		}
+
+
+		@Override
+		String toArg(final Object value) {
+			return Long.toString(((Date) value).getTime() / 1000);
+		}
+	},
+	/** Attributes of type Date, stored as Unix Time in milliseconds. */
+	DATE_MILLIS {
+		@Override
+		Object read(final Cursor cursor, final int pos) {
+			return new Date(cursor.getLong(pos));
+		}
+
+
+		@Override
+		void put(final ContentValues values, final String name, final Object value) {
+			values.put(name, ((Date) value).getTime());
+		}
+
+
+		@Override
+		String toArg(final Object value) {
+			return Long.toString(((Date) value).getTime());
+		}
+	};
+
+
+	/**
+	 * Reads the value of a column in the current row of a cursor.
+	 * @param  cursor  Cursor placed in the row to read.
+	 * @param  pos     Position of the column.
+	 * @return Value of the column, with the type of the attribute.
+	 */
+	abstract Object read(Cursor cursor, int pos);
+
+
+	/**
+	 * Puts a value into a content values object, with its native type.
+	 * @param  values  Content values where the data is stored.
+	 * @param  name    Name of the column.
+	 * @param  value   Value of the attribute. Can't be null.
+	 */
+	abstract void put(ContentValues values, String name, Object value);
+
+
+	/**
+	 * Converts a value into a string argument of a condition, with the same format stored in database.
+	 * @param  value  Value of the attribute. Can't be null.
+	 * @return String argument.
+	 */
+	String toArg(final Object value) {
+		return value.toString();
+	}
+
+
+	/**
+	 * Gets the adapter for a class of attribute.
+	 * @param  type  Class of the attribute.
+	 * @return Adapter of the class, or null if the class is not supported.
+	 */
+	@SuppressWarnings("rawtypes")
+	static ColumnAdapter get(final Class type) {
+		ColumnAdapter adapter = null;
+
+		if (int.class.equals(type) || Integer.class.equals(type)) {
+			adapter = INT;
+		} else if (long.class.equals(type) || Long.class.equals(type)) {
+			adapter = LONG;
+		} else if (float.class.equals(type) || Float.class.equals(type)) {
+			adapter = FLOAT;
+		} else if (double.class.equals(type) || Double.class.equals(type)) {
+			adapter = DOUBLE;
+		} else if (boolean.class.equals(type) || Boolean.class.equals(type)) {
+			adapter = BOOLEAN;
+		} else if (String.class.equals(type)) {
+			adapter = STRING;
+		} else if (Date.class.equals(type)) {
+			adapter = DATE;
+		}
+
+		return adapter;
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of the number of rows of the tables. Counts are stored when they are read from database and updated
+ * by the inserts and deletes of Jaiberdroid. Any other change removes them. While a table is being written, the
+ * counts read from database are not stored, because they can include the rows written or not.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+final class CountCache {
+	/** Number of rows of each table. */
+	private final Map<String, Long> counts = new HashMap<String, Long>();
+	/** Number of writes in progress of each table. */
+	private final Map<String, Integer> writes = new HashMap<String, Integer>();
+	/** Version of the cache, changes with each modification. */
+	private long version = 0;
+
+
+	/**
+	 * Gets the number of rows of a table.
+	 * @param  table  Name of the table.
+	 * @return Number of rows, or null if it's not in cache.
+	 */
+	synchronized Long get(final String table) {
+		return counts.get(table);
+	}
+
+
+	/**
+	 * Gets the version of the cache. Must be read before counting rows in database.
+	 * @return Version of the cache.
+	 */
+	synchronized long getVersion() {
+		return version;
+	}
+
+
+	/**
+	 * Stores the number of rows of a table, if the cache has not been modified while they were counted and
+	 * the table is not being written.
+	 * @param  table    Name of the table.
+	 * @param  count    Number of rows.
+	 * @param  version  Version of the cache before counting the rows.
+	 */
+	synchronized void put(final String table, final long count, final long version) {
+		if (this.version == version && !writes.containsKey(table)) {
+			counts.put(table, count);
+		}
+	}
+
+
+	/**
+	 * Starts a write of a table, before its rows are modified. Must be ended with
+	 * {@link #endWrite(String)} after the write is committed and its count is updated.
+	 * @param  table  Name of the table.
+	 */
+	synchronized void beginWrite(final String table) {
+		final Integer count = writes.get(table);
+
+		++version;
+		writes.put(table, (null == count) ? 1 : count + 1);
+	}
+
+
+	/**
+	 * Ends a write of a table. The counts read from database while the table was written are not stored.
+	 * @param  table  Name of the table.
+	 */
+	synchronized void endWrite(final String table) {
+		final Integer count = writes.get(table);
+
+		++version;
+		if (null == count || count <= 1) {
+			writes.remove(table);
+		} else {
+			writes.put(table, count - 1);
+		}
+	}
+
+
+	/**
+	 * Adds rows to the count of a table, if it's in cache.
+	 * @param  table  Name of the table.
+	 * @param  rows   Number of rows inserted, or negative number of rows deleted.
+	 */
+	synchronized void add(final String table, final long rows) {
+		final Long count = counts.get(table);
+
+		++version;
+		if (null != count) {
+			counts.put(table, count + rows);
+		}
+	}
+
+
+	/**
+	 * Removes the count of a table.
+	 * @param  table  Name of the table.
+	 */
+	synchronized void remove(final String table) {
+		++version;
+		counts.remove(table);
+	}
+
+
+	/**
+	 * Removes the counts of all the tables.
+	 */
+	synchronized void clear() {
+		++version;
+		counts.clear();
+	}
+}
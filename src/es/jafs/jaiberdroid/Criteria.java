@@ -0,0 +1,561 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import es.jafs.jaiberdroid.Query.Type;
+
+/**
+ * <p>Builder of select queries over the columns of an entity. Conditions are joined with AND, unless or() is
+ * called between them. The values are always arguments of the query, so the SQL query only depends on the
+ * conditions used and is compiled once by the database, while only the arguments change.</p>
+ * <p>Columns and values are checked against the entity. Errors are thrown as a JaiberdroidException when the
+ * query is executed.</p>
+ * <pre>
+ *   final List&lt;File&gt; files = query.criteria()
+ *       .eq("folder", folder).gt("size", 1024).or().isNull("size")
+ *       .orderBy(Order.desc("size")).limit(20)
+ *       .list();
+ * </pre>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ * @param <T> Class of entity.
+ */
+public final class Criteria<T> {
+	/** And operator. */
+	private static final String AND = " AND ";
+	/** Or operator. */
+	private static final String OR = " OR ";
+
+	/** Entity of the query. */
+	private final Entity entity;
+	/** Query manager that executes the query. */
+	private final QueryManager queryManager;
+	/** Condition of the query. */
+	private final StringBuilder condition = new StringBuilder();
+	/** Arguments of the condition. */
+	private final List<String> args = new ArrayList<String>();
+	/** Orders of the results, or null. */
+	private Order[] orders;
+	/** Maximum number of rows returned. */
+	private int limit;
+	/** Number of rows skipped. */
+	private int offset;
+	/** Indicates if the next condition is joined with OR. */
+	private boolean or = false;
+	/** First error found building the query, or null. */
+	private String error;
+
+
+	/**
+	 * Creates a builder for an entity.
+	 * @param  entity        Entity of the query.
+	 * @param  queryManager  Query manager that executes the query.
+	 */
+	Criteria(final Entity entity, final QueryManager queryManager) {
+		this.entity = entity;
+		this.queryManager = queryManager;
+	}
+
+
+	/**
+	 * Adds a condition: the column is equal to a value.
+	 * @param  column  Name of the column.
+	 * @param  value   Value of the column. Can't be null, use isNull().
+	 * @return This builder.
+	 */
+	public Criteria<T> eq(final String column, final Object value) {
+		return compare(column, " = ", value);
+	}
+
+
+	/**
+	 * Adds a condition: the column is not equal to a value.
+	 * @param  column  Name of the column.
+	 * @param  value   Value of the column. Can't be null, use isNotNull().
+	 * @return This builder.
+	 */
+	public Criteria<T> ne(final String column, final Object value) {
+		return compare(column, " <> ", value);
+	}
+
+
+	/**
+	 * Adds a condition: the column is less than a value.
+	 * @param  column  Name of the column.
+	 * @param  value   Value of the column.
+	 * @return This builder.
+	 */
+	public Criteria<T> lt(final String column, final Object value) {
+		return compare(column, " < ", value);
+	}
+
+
+	/**
+	 * Adds a condition: the column is less than or equal to a value.
+	 * @param  column  Name of the column.
+	 * @param  value   Value of the column.
+	 * @return This builder.
+	 */
+	public Criteria<T> le(final String column, final Object value) {
+		return compare(column, " <= ", value);
+	}
+
+
+	/**
+	 * Adds a condition: the column is greater than a value.
+	 * @param  column  Name of the column.
+	 * @param  value   Value of the column.
+	 * @return This builder.
+	 */
+	public Criteria<T> gt(final String column, final Object value) {
+		return compare(column, " > ", value);
+	}
+
+
+	/**
+	 * Adds a condition: the column is greater than or equal to a value.
+	 * @param  column  Name of the column.
+	 * @param  value   Value of the column.
+	 * @return This builder.
+	 */
+	public Criteria<T> ge(final String column, final Object value) {
+		return compare(column, " >= ", value);
+	}
+
+
+	/**
+	 * Adds a condition: the column is between two values, both included.
+	 * @param  column  Name of the column.
+	 * @param  from    Minimum value.
+	 * @param  to      Maximum value.
+	 * @return This builder.
+	 */
+	public Criteria<T> between(final String column, final Object from, final Object to) {
+		final Field field = getField(column);
+
+		if (null != field) {
+			final String fromArg = toArg(field, from);
+			final String toArg = toArg(field, to);
+			if (null != fromArg && null != toArg) {
+				append(column + " BETWEEN ? AND ?");
+				args.add(fromArg);
+				args.add(toArg);
+			}
+		}
+
+		return this;
+	}
+
+
+	/**
+	 * Adds a condition: the column is equal to one of the values.
+	 * @param  column  Name of the column.
+	 * @param  values  Values of the column. Can't be empty.
+	 * @return This builder.
+	 */
+	public Criteria<T> in(final String column, final Collection<?> values) {
+		final Field field = getField(column);
+
+		if (null != field) {
+			if (null == values || values.isEmpty()) {
+				setError("Empty values for column " + column);
+				return this;
+			}
+
+			final StringBuilder objSql = new StringBuilder(column);
+			objSql.append(" IN (");
+			for (final Object value : values) {
+				final String arg = toArg(field, value);
+				if (null == arg) {
+					return this;
+				}
+				if (objSql.charAt(objSql.length() - 1) == '?') {
+					objSql.append(',');
+				}
+				objSql.append('?');
+				args.add(arg);
+			}
+			objSql.append(')');
+			append(objSql.toString());
+		}
+
+		return this;
+	}
+
+
+	/**
+	 * Adds a condition: the column is equal to one of the values.
+	 * @param  column  Name of the column.
+	 * @param  values  Values of the column. Can't be empty.
+	 * @return This builder.
+	 */
+	public Criteria<T> in(final String column, final Object... values) {
+		final List<Object> list = new ArrayList<Object>(values.length);
+
+		for (final Object value : values) {
+			list.add(value);
+		}
+
+		return in(column, list);
+	}
+
+
+	/**
+	 * Adds a condition: the column matches a pattern, where % is any text and _ is any character.
+	 * @param  column   Name of the column.
+	 * @param  pattern  Pattern of the column.
+	 * @return This builder.
+	 */
+	public Criteria<T> like(final String column, final String pattern) {
+		return compare(column, " LIKE ", pattern);
+	}
+
+
+	/**
+	 * Adds a condition: the column is null.
+	 * @param  column  Name of the column.
+	 * @return This builder.
+	 */
+	public Criteria<T> isNull(final String column) {
+		if (null != getField(column)) {
+			append(column + " IS NULL");
+		}
+
+		return this;
+	}
+
+
+	/**
+	 * Adds a condition: the column is not null.
+	 * @param  column  Name of the column.
+	 * @return This builder.
+	 */
+	public Criteria<T> isNotNull(final String column) {
+		if (null != getField(column)) {
+			append(column + " IS NOT NULL");
+		}
+
+		return this;
+	}
+
+
+	/**
+	 * Joins the next condition with AND. It's the default.
+	 * @return This builder.
+	 */
+	public Criteria<T> and() {
+		or = false;
+		return this;
+	}
+
+
+	/**
+	 * Joins the next condition with OR. As in SQL, AND is evaluated before OR.
+	 * @return This builder.
+	 */
+	public Criteria<T> or() {
+		or = true;
+		return this;
+	}
+
+
+	/**
+	 * Adds the conditions of other builder, between parenthesis, joined with AND.
+	 * @param  group  Builder with the conditions.
+	 * @return This builder.
+	 */
+	public Criteria<T> and(final Criteria<T> group) {
+		return and().group(group);
+	}
+
+
+	/**
+	 * Adds the conditions of other builder, between parenthesis, joined with OR.
+	 * @param  group  Builder with the conditions.
+	 * @return This builder.
+	 */
+	public Criteria<T> or(final Criteria<T> group) {
+		return or().group(group);
+	}
+
+
+	/**
+	 * Sets the order of the results.
+	 * @param  orders  Orders of the results, by priority.
+	 * @return This builder.
+	 */
+	public Criteria<T> orderBy(final Order... orders) {
+		this.orders = orders;
+		return this;
+	}
+
+
+	/**
+	 * Sets the maximum number of rows returned.
+	 * @param  limit  Maximum number of rows. With 0 or less, there is no maximum.
+	 * @return This builder.
+	 */
+	public Criteria<T> limit(final int limit) {
+		this.limit = limit;
+		return this;
+	}
+
+
+	/**
+	 * Sets the number of rows skipped.
+	 * @param  offset  Number of rows skipped.
+	 * @return This builder.
+	 */
+	public Criteria<T> offset(final int offset) {
+		this.offset = offset;
+		return this;
+	}
+
+
+	/**
+	 * Gets the condition of the query.
+	 * @return String with the condition, or null if there are no conditions.
+	 */
+	public String getCondition() {
+		return (condition.length() > 0) ? condition.toString() : null;
+	}
+
+
+	/**
+	 * Gets the arguments of the condition.
+	 * @return List with the arguments.
+	 */
+	public List<String> getArgs() {
+		return args;
+	}
+
+
+	/**
+	 * Builds the select query.
+	 * @return Query generated.
+	 * @throws JaiberdroidException When a column or a value is not valid.
+	 */
+	public Query build() throws JaiberdroidException {
+		check();
+
+		final Query query = new Query(Type.SELECT, entity.getReferenced());
+		query.setCondition(getCondition());
+		for (final String arg : args) {
+			query.addArg(arg);
+		}
+		query.setOrder(orders);
+		query.setOffset(offset);
+		query.setLimit(limit);
+
+		return query;
+	}
+
+
+	/**
+	 * Executes the query.
+	 * @return List of results. Empty if there are no results.
+	 * @throws JaiberdroidException When a column or a value is not valid, or there is an error on query.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> list() throws JaiberdroidException {
+		final List<T> results = (List<T>) queryManager.executeQuery(build());
+
+		return null != results ? results : new ArrayList<T>();
+	}
+
+
+	/**
+	 * Executes the query, reading the results from database while they are iterated.
+	 * @return Results of the query. Must be closed if they are not iterated until the end.
+	 * @throws JaiberdroidException When a column or a value is not valid, or there is an error on query.
+	 */
+	@SuppressWarnings("unchecked")
+	public ResultIterator<T> iterate() throws JaiberdroidException {
+		return queryManager.executeIterator(build());
+	}
+
+
+	/**
+	 * Executes the query, reading only the first result.
+	 * @return First result, or null if there are no results.
+	 * @throws JaiberdroidException When a column or a value is not valid, or there is an error on query.
+	 */
+	@SuppressWarnings("unchecked")
+	public T first() throws JaiberdroidException {
+		final Query query = build();
+
+		query.setLimit(1);
+
+		return (T) queryManager.executeFirst(query);
+	}
+
+
+	/**
+	 * Counts the rows that satisfy the conditions.
+	 * @return Number of rows.
+	 * @throws JaiberdroidException When a column or a value is not valid, or there is an error on query.
+	 */
+	public long count() throws JaiberdroidException {
+		check();
+
+		return queryManager.executeCountQuery(entity, getCondition(), args);
+	}
+
+
+	/**
+	 * Checks that there were no errors building the query.
+	 * @throws JaiberdroidException With the first error found.
+	 */
+	void check() throws JaiberdroidException {
+		if (null != error) {
+			throw new JaiberdroidException("In entity " + entity.getTableName() + ": " + error);
+		}
+	}
+
+
+	/**
+	 * Gets the orders of the results.
+	 * @return Array of orders, or null.
+	 */
+	Order[] getOrders() {
+		return orders;
+	}
+
+
+	/**
+	 * Gets the maximum number of rows returned.
+	 * @return Maximum number of rows. With 0 or less, there is no maximum.
+	 */
+	int getLimit() {
+		return limit;
+	}
+
+
+	/**
+	 * Gets the number of rows skipped.
+	 * @return Number of rows skipped.
+	 */
+	int getOffset() {
+		return offset;
+	}
+
+
+	/**
+	 * Adds a comparison between a column and a value.
+	 * @param  column    Name of the column.
+	 * @param  operator  Operator of the comparison, with spaces.
+	 * @param  value     Value of the column.
+	 * @return This builder.
+	 */
+	private Criteria<T> compare(final String column, final String operator, final Object value) {
+		final Field field = getField(column);
+
+		if (null != field) {
+			final String arg = toArg(field, value);
+			if (null != arg) {
+				append(column + operator + '?');
+				args.add(arg);
+			}
+		}
+
+		return this;
+	}
+
+
+	/**
+	 * Adds the conditions of other builder between parenthesis.
+	 * @param  group  Builder with the conditions.
+	 * @return This builder.
+	 */
+	private Criteria<T> group(final Criteria<T> group) {
+		if (null != group.error) {
+			setError(group.error);
+		} else if (group.condition.length() > 0) {
+			append("(" + group.condition + ")");
+			args.addAll(group.args);
+		}
+
+		return this;
+	}
+
+
+	/**
+	 * Appends a condition, joined with the previous one.
+	 * @param  sql  Condition to append.
+	 */
+	private void append(final String sql) {
+		if (condition.length() > 0) {
+			condition.append(or ? OR : AND);
+		}
+		condition.append(sql);
+		or = false;
+	}
+
+
+	/**
+	 * Gets a field of the entity, storing the error if it not exists.
+	 * @param  column  Name of the column.
+	 * @return Field of the column, or null if it not exists.
+	 */
+	private Field getField(final String column) {
+		try {
+			return entity.getField(column);
+		} catch (final JaiberdroidException e) {
+			setError("unknown column " + column);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Converts a value into an argument, storing the error if it's not valid.
+	 * @param  field  Field of the column.
+	 * @param  value  Value of the column.
+	 * @return String argument, or null if the value is not valid.
+	 */
+	private String toArg(final Field field, final Object value) {
+		String arg = null;
+
+		if (null == value) {
+			setError("null value for column " + field.getName() + ", use isNull()");
+		} else if (value instanceof String) {
+			arg = (String) value;
+		} else {
+			try {
+				arg = field.getAdapter().toArg(value);
+			} catch (final ClassCastException e) {
+				setError("invalid value " + value + " for column " + field.getName());
+			}
+		}
+
+		return arg;
+	}
+
+
+	/**
+	 * Stores an error, if there is not a previous one.
+	 * @param  message  Message of the error.
+	 */
+	private void setError(final String message) {
+		if (null == error) {
+			error = message;
+		}
+	}
+}
@@ -34,6 +34,19 @@ final class Entity extends ToString {
 	/** Clases referenced. */
 	@SuppressWarnings("rawtypes")
 	private Class referenced; 
+	/** Names of the columns inserted, without the primary key. */
+	private String[] insertColumns;
+	/** Names of the columns inserted with the primary key. */
+	private String[] allColumns;
+	/** Count SQL query of the table. */
+	private String countSql;
+	/** SQL query that checks if a row exists. */
+	private String existsSql;
+	/** Mapper generated for the entity, or null if the entity is mapped with reflection. */
+	@SuppressWarnings("rawtypes")
+	private EntityMapper mapper;
+	/** Cache of the rows of the table, or null if it's not enabled. */
+	private EntityCache cache;
 
 
 	/**
@@ -54,6 +67,24 @@ final class Entity extends ToString {
 	}
 
 
+	/**
+	 * Gets the cache of the rows of the table.
+	 * @return Cache of the rows, or null if it's not enabled.
+	 */
+	EntityCache getCache() {
+		return cache;
+	}
+
+
+	/**
+	 * Sets the cache of the rows of the table.
+	 * @param  cache  Cache of the rows, or null to disable it.
+	 */
+	void setCache(final EntityCache cache) {
+		this.cache = cache;
+	}
+
+
 	/**
 	 * Gets the name of the table.
 	 * @return String with name of the table.
@@ -99,6 +130,78 @@ final class Entity extends ToString {
 	}
 
 
+	/**
+	 * Gets the names of the columns inserted, without the primary key. The array must not be modified.
+	 * @return Array with the names of the columns.
+	 */
+	String[] getInsertColumns() {
+		if (null == insertColumns) {
+			insertColumns = fields.getFieldsWithoutKey();
+		}
+
+		return insertColumns;
+	}
+
+
+	/**
+	 * Gets the names of the columns inserted with the primary key, that is the first one.
+	 * @return Array with the names of the columns.
+	 */
+	String[] getAllColumns() {
+		if (null == allColumns) {
+			final String[] columns = getInsertColumns();
+			allColumns = new String[columns.length + 1];
+			allColumns[0] = JaiberdroidSql._ID;
+			System.arraycopy(columns, 0, allColumns, 1, columns.length);
+		}
+
+		return allColumns;
+	}
+
+
+	/**
+	 * Gets the count SQL query of the table.
+	 * @return String with the count SQL query.
+	 */
+	String getCountSql() {
+		if (null == countSql) {
+			countSql = JaiberdroidSql.getCountSql(tableName);
+		}
+
+		return countSql;
+	}
+
+
+	/**
+	 * Gets the SQL query that checks if a row exists, by its id.
+	 * @return String with the exists SQL query.
+	 */
+	String getExistsSql() {
+		if (null == existsSql) {
+			existsSql = JaiberdroidSql.getExistsSql(tableName);
+		}
+
+		return existsSql;
+	}
+
+
+	/**
+	 * Gets a field of the entity by the name of its column.
+	 * @param  column  Name of the column.
+	 * @return Field of the column.
+	 * @throws JaiberdroidException When the entity has no column with that name.
+	 */
+	Field getField(final String column) throws JaiberdroidException {
+		final Field field = fields.getField(column);
+
+		if (null == field) {
+			throw new JaiberdroidException("In entity " + tableName + ": unknown column " + column);
+		}
+
+		return field;
+	}
+
+
 	/**
 	 * Returns a value that indicates if current entity has a valid primary key.
 	 * @return Value boolean that indicates if entity has valid primary key.
@@ -147,4 +250,24 @@ final class Entity extends ToString {
 	void setReferenced(final Class referenced) {
 		this.referenced = referenced;
 	}
+
+
+	/**
+	 * Gets the mapper generated for this entity.
+	 * @return Mapper of the entity or null if the entity is mapped with reflection.
+	 */
+	@SuppressWarnings("rawtypes")
+	EntityMapper getMapper() {
+		return mapper;
+	}
+
+
+	/**
+	 * Sets the mapper generated for this entity.
+	 * @param  mapper  Mapper of the entity.
+	 */
+	@SuppressWarnings("rawtypes")
+	void setMapper(final EntityMapper mapper) {
+		this.mapper = mapper;
+	}
 }
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.os.Build;
+import android.os.SystemClock;
+
+/**
+ * <p>Cache of the rows of an entity, by id, with LRU eviction and optional expiration. Rows are stored as the
+ * values read from database, not as objects, so each read creates new objects that can be modified without
+ * changing the cache. When all the rows of the table fit in the cache, the select of all the rows is also
+ * answered from the cache.</p>
+ * <p>Rows are only stored if the cache has not been modified while they were read, so a row changed by a
+ * concurrent write is never stored with its old values.</p>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+final class EntityCache {
+	/** Rows stored, by id, in access order. */
+	private final Map<Long, Row> rows;
+	/** Maximum number of rows stored. */
+	private final int maxSize;
+	/** Time that rows are stored, in milliseconds. With 0, rows don't expire. */
+	private final long ttl;
+	/** Ids of all the rows of the table, in the order of the select, or null if they are not known. */
+	private long[] all;
+	/** Version of the cache, changes with each modification. */
+	private long version = 0;
+	/** Number of rows read from the cache. */
+	private long hits = 0;
+	/** Number of rows not found in the cache. */
+	private long misses = 0;
+
+
+	/**
+	 * Values of a row read from database.
+	 */
+	static final class Row {
+		/** Names of the columns. Shared by the rows read by the same select. */
+		private final String[] columns;
+		/** Values of the columns. */
+		private final Object[] values;
+		/** Time when the row was read. */
+		private final long time;
+
+
+		/**
+		 * Creates a row.
+		 * @param  columns  Names of the columns.
+		 * @param  values   Values of the columns.
+		 * @param  time     Time when the row was read.
+		 */
+		private Row(final String[] columns, final Object[] values, final long time) {
+			this.columns = columns;
+			this.values = values;
+			this.time = time;
+		}
+
+
+		/**
+		 * Reads the current row of a cursor.
+		 * @param  columns  Names of the columns of the cursor.
+		 * @param  cursor   Cursor placed in the row.
+		 * @return Row with the values of the cursor.
+		 */
+		static Row read(final String[] columns, final Cursor cursor) {
+			return new Row(columns, readValues(cursor), SystemClock.elapsedRealtime());
+		}
+	}
+
+
+	/**
+	 * Creates a new cache.
+	 * @param  maxSize  Maximum number of rows stored.
+	 * @param  ttl      Time that rows are stored, in milliseconds. With 0, rows don't expire.
+	 */
+	EntityCache(final int maxSize, final long ttl) {
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+		rows = new LinkedHashMap<Long, Row>(16, 0.75f, true) {
+			/** Serial number of the class. */
+			private static final long serialVersionUID = -2794126514287069716L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Long, Row> eldest) {
+				final boolean remove = size() > maxSize;
+				if (remove) {
+					all = null;
+				}
+				return remove;
+			}
+		};
+	}
+
+
+	/**
+	 * Gets a row.
+	 * @param  id  Id of the row.
+	 * @return Row stored, or null if it's not in cache or it has expired.
+	 */
+	synchronized Row get(final long id) {
+		final Row row = find(id);
+
+		if (null == row) {
+			++misses;
+		} else {
+			++hits;
+		}
+
+		return row;
+	}
+
+
+	/**
+	 * Gets all the rows of the table.
+	 * @return Array with the rows, in the order they were read, or null if they are not all in cache.
+	 */
+	synchronized Row[] getAll() {
+		Row[] result = null;
+
+		if (null != all) {
+			result = new Row[all.length];
+			for (int i = 0; i < all.length && null != result; ++i) {
+				result[i] = find(all[i]);
+				if (null == result[i]) {
+					all = null;
+					result = null;
+				}
+			}
+		}
+
+		if (null == result) {
+			++misses;
+		} else {
+			hits += result.length;
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Gets the version of the cache. Must be read before reading rows from database.
+	 * @return Version of the cache.
+	 */
+	synchronized long getVersion() {
+		return version;
+	}
+
+
+	/**
+	 * Stores a row, if the cache has not been modified while it was read.
+	 * @param  id       Id of the row.
+	 * @param  row      Row read from database.
+	 * @param  version  Version of the cache before reading the row.
+	 */
+	synchronized void put(final long id, final Row row, final long version) {
+		if (this.version == version) {
+			rows.put(id, row);
+		}
+	}
+
+
+	/**
+	 * Stores the ids of all the rows of the table, if they fit in the cache and the cache has not been
+	 * modified while they were read. The rows must be stored before.
+	 * @param  ids      Ids of all the rows, in the order of the select.
+	 * @param  version  Version of the cache before reading the rows.
+	 */
+	synchronized void putAll(final long[] ids, final long version) {
+		if (this.version == version && ids.length <= maxSize) {
+			all = ids;
+		}
+	}
+
+
+	/**
+	 * Removes a row modified or deleted.
+	 * @param  id  Id of the row.
+	 */
+	synchronized void remove(final long id) {
+		++version;
+		rows.remove(id);
+		all = null;
+	}
+
+
+	/**
+	 * Marks that rows have been inserted, so the select of all the rows is not answered from the cache.
+	 */
+	synchronized void inserted() {
+		++version;
+		all = null;
+	}
+
+
+	/**
+	 * Removes all the rows.
+	 */
+	synchronized void clear() {
+		++version;
+		rows.clear();
+		all = null;
+	}
+
+
+	/**
+	 * Gets the number of rows read from the cache.
+	 * @return Number of hits.
+	 */
+	synchronized long getHits() {
+		return hits;
+	}
+
+
+	/**
+	 * Gets the number of rows not found in the cache.
+	 * @return Number of misses.
+	 */
+	synchronized long getMisses() {
+		return misses;
+	}
+
+
+	/**
+	 * Creates a cursor with the values of some rows. All the rows must have the same columns.
+	 * @param  rows  Rows of the cursor. Can't be empty.
+	 * @return Cursor with the rows, before the first one.
+	 */
+	static Cursor toCursor(final Row... rows) {
+		final MatrixCursor cursor = new MatrixCursor(rows[0].columns, rows.length);
+
+		for (final Row row : rows) {
+			cursor.addRow(row.values);
+		}
+
+		return cursor;
+	}
+
+
+	/**
+	 * Gets a row that has not expired.
+	 * @param  id  Id of the row.
+	 * @return Row stored, or null if it's not in cache or it has expired.
+	 */
+	private Row find(final long id) {
+		Row row = rows.get(id);
+
+		if (null != row && ttl > 0 && SystemClock.elapsedRealtime() - row.time > ttl) {
+			rows.remove(id);
+			row = null;
+		}
+
+		return row;
+	}
+
+
+	/**
+	 * Reads the values of the current row of a cursor with their types.
+	 * @param  cursor  Cursor placed in the row.
+	 * @return Array with the values.
+	 */
+	private static Object[] readValues(final Cursor cursor) {
+		final Object[] values = new Object[cursor.getColumnCount()];
+
+		for (int i = 0; i < values.length; ++i) {
+			if (cursor.isNull(i)) {
+				values[i] = null;
+			} else if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+				// The type of values can only be read since Honeycomb.
+				values[i] = cursor.getString(i);
+			} else {
+				switch (cursor.getType(i)) {
+					case Cursor.FIELD_TYPE_INTEGER:
+						values[i] = cursor.getLong(i);
+						break;
+					case Cursor.FIELD_TYPE_FLOAT:
+						values[i] = cursor.getDouble(i);
+						break;
+					case Cursor.FIELD_TYPE_BLOB:
+						values[i] = cursor.getBlob(i);
+						break;
+					default:
+						values[i] = cursor.getString(i);
+						break;
+				}
+			}
+		}
+
+		return values;
+	}
+}
@@ -16,6 +16,7 @@
 package es.jafs.jaiberdroid;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -66,6 +67,15 @@ final class EntityManager {
 	}
 
 
+	/**
+	 * Gets all the entities loaded.
+	 * @return Collection with the entities.
+	 */
+	Collection<Entity> getEntities() {
+		return entities.values();
+	}
+
+
 	/**
 	 * Gets all create table queries string.
 	 * @return List with all create table queries.
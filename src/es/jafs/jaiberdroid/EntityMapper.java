@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+/**
+ * <p>Mapper between an entity class and its table. Implementations are generated at build time by the
+ * Jaiberdroid annotation processor, one for each class with the @@Table tag, in the same package of the
+ * entity and with the name of the entity followed by {@link #SUFFIX}.</p>
+ * <p>When a mapper exists for an entity, Jaiberdroid uses it instead of Java Reflection to read and write
+ * the objects.</p>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ * @param <T> Class of entity.
+ */
+public interface EntityMapper<T> {
+	/** Suffix of generated mapper classes. */
+	String SUFFIX = "$$Mapper";
+
+
+	/**
+	 * Receiver of the columns described by a mapper.
+	 */
+	interface ColumnLoader {
+		/**
+		 * Adds a column of the entity, with the values of its @@Column tag.
+		 * @param  name          Name of the attribute.
+		 * @param  type          Class of the attribute.
+		 * @param  primary       Boolean value that indicates if the field is primary key.
+		 * @param  unique        Boolean value that indicates if the field has unique key.
+		 * @param  nullable      Boolean value that indicates if the field can store null values.
+		 * @param  defaultValue  Default value of the column, or empty string.
+		 * @param  index         Boolean value that indicates if the column is indexed.
+		 * @param  ascOrder      Boolean value that indicates the order of the index.
+		 * @param  millis        Boolean value that indicates if dates are stored with millisecond precision.
+		 * @throws JaiberdroidException When the column is not valid.
+		 */
+		void add(String name, Class<?> type, boolean primary, boolean unique, boolean nullable,
+				String defaultValue, boolean index, boolean ascOrder, boolean millis) throws JaiberdroidException;
+	}
+
+
+	/**
+	 * Describes the columns of the entity, in declaration order, so they are loaded without reading the
+	 * attributes of the class with Java Reflection.
+	 * @param  loader  Receiver of the columns.
+	 * @throws JaiberdroidException When a column is not valid.
+	 */
+	void loadColumns(ColumnLoader loader) throws JaiberdroidException;
+
+
+	/**
+	 * Gets the columns of the table, in the order expected by {@link #read(Cursor)}.
+	 * @return Array with the names of the columns.
+	 */
+	String[] getColumns();
+
+
+	/**
+	 * Creates an object with the current row of a cursor. The cursor must be generated with the columns
+	 * returned by {@link #getColumns()}, so the values are read by fixed positions.
+	 * @param  cursor  Cursor placed in the row to read.
+	 * @return Object with the data of the row.
+	 */
+	T read(Cursor cursor);
+
+
+	/**
+	 * Puts the values of an object into a content values object.
+	 * @param  object  Object with the data.
+	 * @param  values  Content values where the data is stored.
+	 * @param  id      Boolean value that indicated if content values stores also the id.
+	 * @throws JaiberdroidException When a not nullable field has null value.
+	 */
+	void bind(T object, ContentValues values, boolean id) throws JaiberdroidException;
+
+
+	/**
+	 * Gets the id of an object.
+	 * @param  object  Object with the data.
+	 * @return Value of the primary key.
+	 */
+	long getId(T object);
+
+
+	/**
+	 * Sets the id of an object.
+	 * @param  object  Object with the data.
+	 * @param  id      Value of the primary key.
+	 * @throws IllegalArgumentException When the primary key is an int and the id doesn't fit in it.
+	 */
+	void setId(T object, long id);
+}
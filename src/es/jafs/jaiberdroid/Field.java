@@ -15,6 +15,8 @@
  */
 package es.jafs.jaiberdroid;
 
+import java.lang.reflect.Method;
+
 import es.jafs.jaiberdroid.utils.ToString;
 
 /**
@@ -43,8 +45,16 @@ final class Field extends ToString {
 	private boolean index = false;
 	/** Ascendent order when current column is indexed. */
 	private boolean ascOrder = true;
+	/** Dates are stored with millisecond precision. */
+	private boolean millis = false;
 	/** Class of field. */
 	private Class fieldClass = null;
+	/** Get method of the attribute, resolved when the entity is loaded. */
+	private Method getter = null;
+	/** Set method of the attribute, resolved when the entity is loaded. */
+	private Method setter = null;
+	/** Adapter used to read and write the values of the field. */
+	private ColumnAdapter adapter = null;
 
 
 	/**
@@ -59,6 +69,7 @@ final class Field extends ToString {
 		this.unique = false;
 		this.isnull = false;
 		this.fieldClass = fieldClass;
+		this.adapter = ColumnAdapter.get(fieldClass);
 	}
 
 
@@ -71,6 +82,7 @@ final class Field extends ToString {
 	Field(final String name, final FieldTypes type, final Class fieldClass) {
 		this.name = name;
 		this.fieldClass = fieldClass;
+		this.adapter = ColumnAdapter.get(fieldClass);
 
 		if (null != type) {
 			this.type = type;
@@ -91,6 +103,7 @@ final class Field extends ToString {
 		this.unique = unique;
 		this.isnull = isnull;
 		this.fieldClass = fieldClass;
+		this.adapter = ColumnAdapter.get(fieldClass);
 
 		if (null != type) {
 			this.type = type;
@@ -158,6 +171,17 @@ final class Field extends ToString {
 	 */
 	final void setFieldClass(final Class fieldClass) {
 		this.fieldClass = fieldClass;
+		this.adapter = ColumnAdapter.get(fieldClass);
+		setMillis(millis);
+	}
+
+
+	/**
+	 * Gets the adapter used to read and write the values of the field.
+	 * @return Adapter of the field.
+	 */
+	final ColumnAdapter getAdapter() {
+		return adapter;
 	}
 
 
@@ -213,4 +237,62 @@ final class Field extends ToString {
 	final void setAscOrder(final boolean ascOrder) {
 		this.ascOrder = ascOrder;
 	}
+
+
+	/**
+	 * Gets a boolean value that indicates if dates are stored with millisecond precision.
+	 * @return Boolean value that indicates if dates are stored with millisecond precision.
+	 */
+	final boolean isMillis() {
+		return millis;
+	}
+
+
+	/**
+	 * Sets a boolean value that indicates if dates are stored with millisecond precision.
+	 * @param  millis  Boolean value that indicates if dates are stored with millisecond precision.
+	 */
+	final void setMillis(final boolean millis) {
+		this.millis = millis;
+
+		if (ColumnAdapter.DATE.equals(adapter) || ColumnAdapter.DATE_MILLIS.equals(adapter)) {
+			adapter = millis ? ColumnAdapter.DATE_MILLIS : ColumnAdapter.DATE;
+		}
+	}
+
+
+	/**
+	 * Gets the get method of the attribute.
+	 * @return Method used to read the attribute.
+	 */
+	final Method getGetter() {
+		return getter;
+	}
+
+
+	/**
+	 * Sets the get method of the attribute.
+	 * @param  getter  Method used to read the attribute.
+	 */
+	final void setGetter(final Method getter) {
+		this.getter = getter;
+	}
+
+
+	/**
+	 * Gets the set method of the attribute.
+	 * @return Method used to write the attribute.
+	 */
+	final Method getSetter() {
+		return setter;
+	}
+
+
+	/**
+	 * Sets the set method of the attribute.
+	 * @param  setter  Method used to write the attribute.
+	 */
+	final void setSetter(final Method setter) {
+		this.setter = setter;
+	}
 }
@@ -15,7 +15,7 @@
  */
 package es.jafs.jaiberdroid;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import android.provider.BaseColumns;
@@ -28,8 +28,8 @@ import es.jafs.jaiberdroid.utils.ToString;
  * @version 0.5
  */
 final class FieldSet extends ToString implements BaseColumns {
-	/** Map with a set of fields. */
-	private final Map<String, Field> fields = new HashMap<String, Field>();
+	/** Map with a set of fields, in declaration order. */
+	private final Map<String, Field> fields = new LinkedHashMap<String, Field>();
 
 
 	/**
@@ -49,7 +49,7 @@ final class FieldSet extends ToString implements BaseColumns {
 
 		if (_ID.equals(field.getName()) && (!field.getType().equals(FieldTypes.INTEGER)
 			|| !field.isPrimary())) {
-			throw new JaiberdroidException("The field _id must be of type int and primary key");
+			throw new JaiberdroidException("The field _id must be of type int or long and primary key");
 		}
 
 		if (field.isPrimary() && !_ID.equals(field.getName())) {
@@ -96,6 +96,44 @@ final class FieldSet extends ToString implements BaseColumns {
 	}
 
 
+	/**
+	 * Gets the field with the name received.
+	 * @param  name  Name of field to search.
+	 * @return Field found or null if not exists.
+	 */
+	Field getField(final String name) {
+		return fields.get(name);
+	}
+
+
+	/**
+	 * Gets the primary key field.
+	 * @return Field of primary key or null if not exists.
+	 */
+	Field getKey() {
+		return fields.get(_ID);
+	}
+
+
+	/**
+	 * Gets an array with the names of the fields, without the primary key.
+	 * @return Array with the names of the fields.
+	 */
+	String[] getFieldsWithoutKey() {
+		final String[] array = new String[hasKey() ? fields.size() - 1 : fields.size()];
+
+		int i = 0;
+		for (final String field : fields.keySet()) {
+			if (!_ID.equals(field)) {
+				array[i] = field;
+				++i;
+			}
+		}
+
+		return array;
+	}
+
+
 	/**
 	 * Gets a field class of attribute received.
 	 * @param  name  Name of field to search.
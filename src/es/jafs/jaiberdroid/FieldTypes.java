@@ -33,7 +33,7 @@ enum FieldTypes {
 	BOOLEAN("BOOLEAN"),
 	/**
 	 * The value is a date, stored using an integer in databases as Unix Time, with number of seconds since
-	 * 1970-01-01 00:00:00 UTC.
+	 * 1970-01-01 00:00:00 UTC. Columns with millisecond precision store the number of milliseconds.
 	 */
 	DATE("INTEGER");
 
@@ -16,8 +16,14 @@
 package es.jafs.jaiberdroid;
 
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
+import android.database.sqlite.SQLiteDatabase;
 import es.jafs.jaiberdroid.Query.Type;
 
 /**
@@ -65,6 +71,131 @@ public class GenericQuery<T> {
 	}
 
 
+	/**
+	 * Get all elements of the table in an order.
+	 * @param  orders  Orders of the rows, by priority.
+	 * @return A list of results generated by the query.
+	 * @throws JaiberdroidException 
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> getAll(final Order... orders) throws JaiberdroidException {
+		final Query query = new Query(Type.SELECT, entity.getReferenced());
+
+		query.setOrder(orders);
+
+		return (List<T>) queryManager.executeQuery(query);
+	}
+
+
+	/**
+	 * Get all elements of the table, reading them from database while they are iterated.
+	 * @return Results of the query. Must be closed if they are not iterated until the end.
+	 * @throws JaiberdroidException 
+	 */
+	public ResultIterator<T> iterateAll() throws JaiberdroidException {
+		return iterate(new Query(Type.SELECT, entity.getReferenced()));
+	}
+
+
+	/**
+	 * Get all elements of the table in an order, reading them from database while they are iterated.
+	 * @param  orders  Orders of the rows, by priority.
+	 * @return Results of the query. Must be closed if they are not iterated until the end.
+	 * @throws JaiberdroidException 
+	 */
+	public ResultIterator<T> iterateAll(final Order... orders) throws JaiberdroidException {
+		final Query query = new Query(Type.SELECT, entity.getReferenced());
+
+		query.setOrder(orders);
+
+		return iterate(query);
+	}
+
+
+	/**
+	 * Gets a page of elements of the table. For pages far from the start of a large table, pageAfter() is
+	 * faster, because rows skipped by offset must be read.
+	 * @param  offset  Number of rows skipped.
+	 * @param  limit   Maximum number of rows of the page.
+	 * @param  order   Order of the rows. If null, rows are ordered by id.
+	 * @return List with the elements of the page. Empty if there are no more elements.
+	 * @throws JaiberdroidException 
+	 */
+	public List<T> page(final int offset, final int limit, final Order order) throws JaiberdroidException {
+		final Query query = new Query(Type.SELECT, entity.getReferenced());
+
+		query.setOrder(null != order ? order : Order.asc(JaiberdroidSql._ID));
+		query.setOffset(offset);
+		query.setLimit(limit);
+
+		return list(query);
+	}
+
+
+	/**
+	 * Gets a page of elements of the table with id greater than received, ordered by id. Uses the primary key,
+	 * so the cost of the query only depends on the size of the page.
+	 * @param  lastId  Id of the last element of the previous page. 0 for the first page.
+	 * @param  limit   Maximum number of rows of the page.
+	 * @return List with the elements of the page. Empty if there are no more elements.
+	 * @throws JaiberdroidException 
+	 */
+	public List<T> pageAfter(final long lastId, final int limit) throws JaiberdroidException {
+		final Query query = new Query(Type.SELECT, entity.getReferenced());
+
+		query.setCondition(JaiberdroidSql._ID + " > ?");
+		query.addArg(lastId);
+		query.setOrder(Order.asc(JaiberdroidSql._ID));
+		query.setLimit(limit);
+
+		return list(query);
+	}
+
+
+	/**
+	 * Gets a page of elements of the table that are after the last element of the previous page, in the
+	 * received order (keyset pagination). Rows with the same value are ordered by id, in the direction stored
+	 * in the index of the column. With a column with index, the cost of the query only depends on the size of
+	 * the page. The column can't contain null values.
+	 * @param  order      Order of the rows.
+	 * @param  lastValue  Value of the column in the last element of the previous page.
+	 * @param  lastId     Id of the last element of the previous page.
+	 * @param  limit      Maximum number of rows of the page.
+	 * @return List with the elements of the page. Empty if there are no more elements.
+	 * @throws JaiberdroidException 
+	 */
+	public List<T> pageAfter(final Order order, final Object lastValue, final long lastId, final int limit)
+							throws JaiberdroidException {
+		final Field field = entity.getField(order.getColumn());
+		final boolean ascending = order.isAscending(field);
+		final boolean idAscending = JaiberdroidSql.isIdAscending(field, ascending);
+		final Query query = new Query(Type.SELECT, entity.getReferenced());
+
+		if (null == lastValue) {
+			throw new JaiberdroidException("The last value of " + order.getColumn() + " can't be null");
+		}
+
+		query.setCondition(JaiberdroidSql.getKeysetCondition(field.getName(), ascending, idAscending));
+		query.addArg(field.getAdapter().toArg(lastValue));
+		query.addArg(field.getAdapter().toArg(lastValue));
+		query.addArg(lastId);
+		query.setOrder(ascending ? Order.asc(field.getName()) : Order.desc(field.getName()),
+						idAscending ? Order.asc(JaiberdroidSql._ID) : Order.desc(JaiberdroidSql._ID));
+		query.setLimit(limit);
+
+		return list(query);
+	}
+
+
+	/**
+	 * Creates a builder of select queries over the columns of the entity.
+	 * @return New builder, without conditions.
+	 */
+	public Criteria<T> criteria() {
+		return new Criteria<T>(entity, queryManager);
+	}
+
+
 	/**
 	 * Find a object with its PK.
 	 * @param  id  Id of the object to find.
@@ -72,19 +203,18 @@ public class GenericQuery<T> {
 	 * @throws JaiberdroidException 
 	 */
 	@SuppressWarnings("unchecked")
-	public T findByPk(final int id) throws JaiberdroidException {
-		T current = null;
+	public T findByPk(final long id) throws JaiberdroidException {
+		final Object cached = queryManager.findInSession(entity, id);
+		if (null != cached) {
+			return (T) cached;
+		}
 
 		final Query query = new Query(Type.SELECT, entity.getReferenced());
 		query.addArg(id);
-		query.setCondition(JaiberdroidSql._ID + " = ?");
-
-		final List<T> resul = (List<T>) queryManager.executeQuery(query);
-		if (null != resul && !resul.isEmpty()) {
-			current = resul.get(0);
-		}
+		query.setCondition(JaiberdroidSql.KEY_CONDITION);
+		query.setLimit(1);
 
-		return current;
+		return (T) queryManager.executeFirst(query);
 	}
 
 
@@ -99,6 +229,91 @@ public class GenericQuery<T> {
 	}
 
 
+	/**
+	 * Insert all the received objects in only one transaction.
+	 * @param  objects  Objects to insert.
+	 * @return Array with the number of rows inserted in each committed transaction.
+	 * @throws JaiberdroidException 
+	 */
+	public long[] insertAll(final Collection<T> objects) throws JaiberdroidException {
+		return insertAll(objects.iterator(), 0);
+	}
+
+
+	/**
+	 * Insert all the received objects, committing a transaction each time a number of rows is inserted.
+	 * @param  objects         Objects to insert.
+	 * @param  commitInterval  Number of rows of each transaction. With 0 or less, all the rows are inserted in
+	 *                         only one transaction.
+	 * @return Array with the number of rows inserted in each committed transaction.
+	 * @throws JaiberdroidException 
+	 */
+	public long[] insertAll(final Collection<T> objects, final int commitInterval) throws JaiberdroidException {
+		return insertAll(objects.iterator(), commitInterval);
+	}
+
+
+	/**
+	 * Insert all the objects returned by an iterator in only one transaction.
+	 * @param  objects  Iterator over the objects to insert.
+	 * @return Array with the number of rows inserted in each committed transaction.
+	 * @throws JaiberdroidException 
+	 */
+	public long[] insertAll(final Iterator<T> objects) throws JaiberdroidException {
+		return insertAll(objects, 0);
+	}
+
+
+	/**
+	 * Insert all the objects returned by an iterator, committing a transaction each time a number of rows is
+	 * inserted. The ids generated are set in the objects.
+	 * @param  objects         Iterator over the objects to insert.
+	 * @param  commitInterval  Number of rows of each transaction. With 0 or less, all the rows are inserted in
+	 *                         only one transaction.
+	 * @return Array with the number of rows inserted in each committed transaction.
+	 * @throws JaiberdroidException 
+	 */
+	public long[] insertAll(final Iterator<T> objects, final int commitInterval) throws JaiberdroidException {
+		return queryManager.executeInsertAll(entity, objects, SQLiteDatabase.CONFLICT_NONE, commitInterval);
+	}
+
+
+	/**
+	 * Inserts the received object, or replaces the row with its id or with the same value in a unique column.
+	 * The replaced row is deleted, so the columns not stored in the object take their default values. If the
+	 * object has no id, a new one is generated and set in the object.
+	 * @param  object  Object to insert or replace.
+	 * @return True if the object was stored.
+	 * @throws JaiberdroidException 
+	 */
+	public boolean upsert(final T object) throws JaiberdroidException {
+		return (-1L != (Long) queryManager.executeQuery(Query.createUpsert(object)));
+	}
+
+
+	/**
+	 * Inserts or replaces all the received objects in only one transaction, as upsert().
+	 * @param  objects  Objects to insert or replace.
+	 * @return Array with the number of rows stored in each committed transaction.
+	 * @throws JaiberdroidException 
+	 */
+	public long[] upsertAll(final Collection<T> objects) throws JaiberdroidException {
+		return queryManager.executeInsertAll(entity, objects.iterator(), SQLiteDatabase.CONFLICT_REPLACE, 0);
+	}
+
+
+	/**
+	 * Inserts the received object only if there is no row with its id or with the same value in a unique
+	 * column. If the object has no id, a new one is generated and set in the object.
+	 * @param  object  Object to insert.
+	 * @return True if the object was inserted, false if it already exists.
+	 * @throws JaiberdroidException 
+	 */
+	public boolean insertIfAbsent(final T object) throws JaiberdroidException {
+		return (-1L != (Long) queryManager.executeQuery(Query.createInsertIfAbsent(object)));
+	}
+
+
 	/**
 	 * Update the received object.
 	 * @param  object  Object to update.
@@ -116,7 +331,7 @@ public class GenericQuery<T> {
 	 * @return Boolean value that is true if the row has been deleted.
 	 * @throws JaiberdroidException 
 	 */
-	public boolean remove(final int id) throws JaiberdroidException {
+	public boolean remove(final long id) throws JaiberdroidException {
 		return (1L == (Long) queryManager.executeQuery(Query.createDelete(entity.getReferenced(), id)));
 	}
 
@@ -131,14 +346,123 @@ public class GenericQuery<T> {
 	}
 
 
+	/**
+	 * Adds a listener of the changes of the entity, called in the thread that commits them.
+	 * @param  listener  Listener of the changes.
+	 */
+	public void addChangeListener(final ChangeEvent.Listener listener) {
+		queryManager.addChangeListener(entity, listener, null);
+	}
+
+
+	/**
+	 * Adds a listener of the changes of the entity, called in an executor, like AsyncQuery.mainThread().
+	 * @param  listener  Listener of the changes.
+	 * @param  executor  Executor where the listener is called.
+	 */
+	public void addChangeListener(final ChangeEvent.Listener listener, final Executor executor) {
+		queryManager.addChangeListener(entity, listener, executor);
+	}
+
+
+	/**
+	 * Removes a listener of the changes of the entity.
+	 * @param  listener  Listener to remove.
+	 */
+	public void removeChangeListener(final ChangeEvent.Listener listener) {
+		queryManager.removeChangeListener(entity, listener);
+	}
+
+
+	/**
+	 * Gets the number of rows read from the cache of the entity, enabled with cacheSize in the tag Table.
+	 * @return Number of rows read from the cache, or 0 if it's not enabled.
+	 */
+	public long getCacheHits() {
+		return (null != entity.getCache()) ? entity.getCache().getHits() : 0;
+	}
+
+
+	/**
+	 * Gets the number of rows not found in the cache of the entity, that are read from database.
+	 * @return Number of rows not found in the cache, or 0 if it's not enabled.
+	 */
+	public long getCacheMisses() {
+		return (null != entity.getCache()) ? entity.getCache().getMisses() : 0;
+	}
+
+
 	/**
 	 * Gets a boolean value that is true if object with id received exists.
 	 * @param  id  Id of the object to find.
 	 * @return Boolean value that is true if object with id received exists.
 	 * @throws JaiberdroidException 
 	 */
-	public boolean exists(final int id) throws JaiberdroidException {
-		return (null != findByPk(id));
+	public boolean exists(final long id) throws JaiberdroidException {
+		return queryManager.executeExists(entity, id);
+	}
+
+
+	/**
+	 * Finds the rows with a value in an indexed or unique column. With a unique column, reads only one row.
+	 * @param  column  Name of the column, declared with index or unique.
+	 * @param  value   Value of the column, or null for rows without value.
+	 * @return List of results. Empty if there are no results.
+	 * @throws JaiberdroidException When the column is not indexed or the value is not valid.
+	 */
+	public List<T> findBy(final String column, final Object value) throws JaiberdroidException {
+		final Criteria<T> criteria = by(column, value);
+
+		if (isUniqueKey(column, value)) {
+			criteria.limit(1);
+		}
+
+		return criteria.list();
+	}
+
+
+	/**
+	 * Finds the first row with a value in an indexed or unique column, reading only one row.
+	 * @param  column  Name of the column, declared with index or unique.
+	 * @param  value   Value of the column, or null for rows without value.
+	 * @return First result, or null if there are no results.
+	 * @throws JaiberdroidException When the column is not indexed or the value is not valid.
+	 */
+	public T findFirstBy(final String column, final Object value) throws JaiberdroidException {
+		return by(column, value).first();
+	}
+
+
+	/**
+	 * Deletes the rows with a value in an indexed or unique column.
+	 * @param  column  Name of the column, declared with index or unique.
+	 * @param  value   Value of the column, or null for rows without value.
+	 * @return Number of rows deleted.
+	 * @throws JaiberdroidException When the column is not indexed or the value is not valid.
+	 */
+	public long deleteBy(final String column, final Object value) throws JaiberdroidException {
+		final Criteria<T> criteria = by(column, value);
+		criteria.check();
+
+		final Query query = new Query(Type.DELETE, entity.getReferenced());
+		query.setCondition(criteria.getCondition());
+		for (final String arg : criteria.getArgs()) {
+			query.addArg(arg);
+		}
+
+		return (Long) queryManager.executeQuery(query);
+	}
+
+
+	/**
+	 * Counts the rows with a value in an indexed or unique column.
+	 * @param  column  Name of the column, declared with index or unique.
+	 * @param  value   Value of the column, or null for rows without value.
+	 * @return Number of rows.
+	 * @throws JaiberdroidException When the column is not indexed or the value is not valid.
+	 */
+	public long countBy(final String column, final Object value) throws JaiberdroidException {
+		return by(column, value).count();
 	}
 
 
@@ -148,7 +472,296 @@ public class GenericQuery<T> {
 	 * @throws JaiberdroidException 
 	 */
 	public long count() throws JaiberdroidException {
-		return queryManager.executeCountQuery(entity);
+		return queryManager.executeCountQuery(entity, null, null);
+	}
+
+
+	/**
+	 * Counts the rows of the table that satisfy a condition.
+	 * @param  condition  Condition of the rows, with ? in the place of the arguments.
+	 * @param  args       Arguments of the condition.
+	 * @return Number of rows.
+	 * @throws JaiberdroidException 
+	 */
+	public long count(final String condition, final String... args) throws JaiberdroidException {
+		return queryManager.executeCountQuery(entity, condition, (null != args) ? Arrays.asList(args) : null);
+	}
+
+
+	/**
+	 * Sums the values of a column in database.
+	 * @param  column  Name of the column.
+	 * @return Sum of the values, or 0 if there are no rows.
+	 * @throws JaiberdroidException 
+	 */
+	public double sum(final String column) throws JaiberdroidException {
+		return sum(column, null);
+	}
+
+
+	/**
+	 * Sums the values of a column in database.
+	 * @param  column    Name of the column.
+	 * @param  criteria  Conditions of the rows, or null for all the rows.
+	 * @return Sum of the values, or 0 if there are no rows.
+	 * @throws JaiberdroidException 
+	 */
+	public double sum(final String column, final Criteria<T> criteria) throws JaiberdroidException {
+		final Double value = aggregateNumber(Aggregate.sum(column), criteria);
+
+		return null != value ? value : 0;
+	}
+
+
+	/**
+	 * Sums the values of an integer column in database, without losing the precision of big values.
+	 * @param  column  Name of the column.
+	 * @return Sum of the values, or 0 if there are no rows.
+	 * @throws JaiberdroidException 
+	 */
+	public long sumLong(final String column) throws JaiberdroidException {
+		return sumLong(column, null);
+	}
+
+
+	/**
+	 * Sums the values of an integer column in database, without losing the precision of big values.
+	 * @param  column    Name of the column.
+	 * @param  criteria  Conditions of the rows, or null for all the rows.
+	 * @return Sum of the values, or 0 if there are no rows.
+	 * @throws JaiberdroidException When the sum is not an integer.
+	 */
+	public long sumLong(final String column, final Criteria<T> criteria) throws JaiberdroidException {
+		final Aggregate aggregate = Aggregate.sum(column);
+		final String value = aggregate(aggregate, criteria);
+
+		try {
+			return null != value ? Long.parseLong(value) : 0;
+		} catch (final NumberFormatException e) {
+			throw new JaiberdroidException("Value of " + aggregate + " is not an integer: " + value);
+		}
+	}
+
+
+	/**
+	 * Gets the average of the values of a column in database.
+	 * @param  column  Name of the column.
+	 * @return Value of the aggregate, or NaN if there are no rows.
+	 * @throws JaiberdroidException 
+	 */
+	public double avg(final String column) throws JaiberdroidException {
+		return avg(column, null);
+	}
+
+
+	/**
+	 * Gets the average of the values of a column in database.
+	 * @param  column    Name of the column.
+	 * @param  criteria  Conditions of the rows, or null for all the rows.
+	 * @return Average of the values, or NaN if there are no rows.
+	 * @throws JaiberdroidException 
+	 */
+	public double avg(final String column, final Criteria<T> criteria) throws JaiberdroidException {
+		final Double value = aggregateNumber(Aggregate.avg(column), criteria);
+
+		return null != value ? value : Double.NaN;
+	}
+
+
+	/**
+	 * Gets the minimum value of a numeric or date column in database.
+	 * @param  column  Name of the column.
+	 * @return Value of the aggregate, or NaN if there are no rows.
+	 * @throws JaiberdroidException 
+	 */
+	public double min(final String column) throws JaiberdroidException {
+		return min(column, null);
+	}
+
+
+	/**
+	 * Gets the minimum value of a numeric or date column in database. Dates are returned as they are stored.
+	 * @param  column    Name of the column.
+	 * @param  criteria  Conditions of the rows, or null for all the rows.
+	 * @return Minimum value, or NaN if there are no rows.
+	 * @throws JaiberdroidException 
+	 */
+	public double min(final String column, final Criteria<T> criteria) throws JaiberdroidException {
+		final Double value = aggregateNumber(Aggregate.min(column), criteria);
+
+		return null != value ? value : Double.NaN;
+	}
+
+
+	/**
+	 * Gets the maximum value of a numeric or date column in database.
+	 * @param  column  Name of the column.
+	 * @return Value of the aggregate, or NaN if there are no rows.
+	 * @throws JaiberdroidException 
+	 */
+	public double max(final String column) throws JaiberdroidException {
+		return max(column, null);
+	}
+
+
+	/**
+	 * Gets the maximum value of a numeric or date column in database. Dates are returned as they are stored.
+	 * @param  column    Name of the column.
+	 * @param  criteria  Conditions of the rows, or null for all the rows.
+	 * @return Maximum value, or NaN if there are no rows.
+	 * @throws JaiberdroidException 
+	 */
+	public double max(final String column, final Criteria<T> criteria) throws JaiberdroidException {
+		final Double value = aggregateNumber(Aggregate.max(column), criteria);
+
+		return null != value ? value : Double.NaN;
+	}
+
+
+	/**
+	 * Counts the distinct values of a column in database, without nulls.
+	 * @param  column  Name of the column.
+	 * @return Number of distinct values.
+	 * @throws JaiberdroidException 
+	 */
+	public long countDistinct(final String column) throws JaiberdroidException {
+		return countDistinct(column, null);
+	}
+
+
+	/**
+	 * Counts the distinct values of a column in database, without nulls.
+	 * @param  column    Name of the column.
+	 * @param  criteria  Conditions of the rows, or null for all the rows.
+	 * @return Number of distinct values.
+	 * @throws JaiberdroidException 
+	 */
+	public long countDistinct(final String column, final Criteria<T> criteria) throws JaiberdroidException {
+		return Long.parseLong(aggregate(Aggregate.countDistinct(column), criteria));
+	}
+
+
+	/**
+	 * Groups all the rows by some columns and calculates aggregates of each group in database.
+	 * @param  columns     Columns of the groups.
+	 * @param  aggregates  Aggregates calculated for each group.
+	 * @return Table with a row for each group, or null if there is an error.
+	 * @throws JaiberdroidException When a column is not in the entity.
+	 */
+	public ResultTable groupBy(final String[] columns, final Aggregate... aggregates) throws JaiberdroidException {
+		return groupBy(null, columns, aggregates);
+	}
+
+
+	/**
+	 * Groups the rows by some columns and calculates aggregates of each group in database. The table returned
+	 * has a column for each group column and a column for each aggregate, in the same order.
+	 * @param  criteria    Conditions, order and limit of the groups, or null for all the rows.
+	 * @param  columns     Columns of the groups.
+	 * @param  aggregates  Aggregates calculated for each group.
+	 * @return Table with a row for each group, or null if there is an error.
+	 * @throws JaiberdroidException When a column is not in the entity.
+	 */
+	public ResultTable groupBy(final Criteria<T> criteria, final String[] columns, final Aggregate... aggregates)
+								throws JaiberdroidException {
+		final String[] selected = new String[columns.length + aggregates.length];
+		String condition = null;
+		String[] args = null;
+		String orderBy = null;
+		String limit = null;
+
+		for (int i = 0; i < columns.length; ++i) {
+			selected[i] = entity.getField(columns[i]).getName();
+		}
+		for (int i = 0; i < aggregates.length; ++i) {
+			selected[columns.length + i] = aggregates[i].getSql(entity);
+		}
+		if (null != criteria) {
+			criteria.check();
+			condition = criteria.getCondition();
+			args = criteria.getArgs().toArray(new String[criteria.getArgs().size()]);
+			orderBy = JaiberdroidSql.getOrderSql(entity, criteria.getOrders());
+			limit = JaiberdroidSql.getLimitSql(criteria.getOffset(), criteria.getLimit());
+		}
+
+		return queryManager.executeTable(JaiberdroidSql.getSelectSql(entity.getTableName(), selected, condition,
+																	columns, orderBy, limit), args);
+	}
+
+
+	/**
+	 * Creates the criteria of a lookup by an indexed or unique column. The condition is always the same for
+	 * a column, so its statement is compiled only once.
+	 * @param  column  Name of the column.
+	 * @param  value   Value of the column, or null for rows without value.
+	 * @return Criteria with the condition.
+	 * @throws JaiberdroidException When the column is not in the entity or it's not indexed.
+	 */
+	private Criteria<T> by(final String column, final Object value) throws JaiberdroidException {
+		final Field field = entity.getField(column);
+
+		if (!field.isIndex() && !field.isUnique() && !field.isPrimary()) {
+			throw new JaiberdroidException("In entity " + entity.getTableName() + ": column " + column
+										+ " is not indexed");
+		}
+
+		return (null != value) ? criteria().eq(column, value) : criteria().isNull(column);
+	}
+
+
+	/**
+	 * Checks if a lookup by a column returns one row at most.
+	 * @param  column  Name of the column.
+	 * @param  value   Value of the column.
+	 * @return Boolean value that is true when the column is unique and the value is not null.
+	 * @throws JaiberdroidException When the column is not in the entity.
+	 */
+	private boolean isUniqueKey(final String column, final Object value) throws JaiberdroidException {
+		final Field field = entity.getField(column);
+
+		// Unique columns can have several rows with null.
+		return null != value && (field.isUnique() || field.isPrimary());
+	}
+
+
+	/**
+	 * Calculates an aggregate in database.
+	 * @param  aggregate  Aggregate to calculate.
+	 * @param  criteria   Conditions of the rows, or null for all the rows.
+	 * @return Value of the aggregate, or null if it's null.
+	 * @throws JaiberdroidException 
+	 */
+	private String aggregate(final Aggregate aggregate, final Criteria<T> criteria) throws JaiberdroidException {
+		String condition = null;
+		List<String> args = null;
+
+		if (null != criteria) {
+			criteria.check();
+			condition = criteria.getCondition();
+			args = criteria.getArgs();
+		}
+
+		return queryManager.executeAggregate(JaiberdroidSql.getSelectSql(entity.getTableName(),
+															new String[] {aggregate.getSql(entity)}, condition,
+															null, null, null), args);
+	}
+
+
+	/**
+	 * Calculates a numeric aggregate in database.
+	 * @param  aggregate  Aggregate to calculate.
+	 * @param  criteria   Conditions of the rows, or null for all the rows.
+	 * @return Value of the aggregate, or null if it's null.
+	 * @throws JaiberdroidException When the value of the aggregate is not a number.
+	 */
+	private Double aggregateNumber(final Aggregate aggregate, final Criteria<T> criteria) throws JaiberdroidException {
+		final String value = aggregate(aggregate, criteria);
+
+		try {
+			return null != value ? Double.valueOf(value) : null;
+		} catch (final NumberFormatException e) {
+			throw new JaiberdroidException("Value of " + aggregate + " is not a number: " + value);
+		}
 	}
 
 
@@ -162,6 +775,18 @@ public class GenericQuery<T> {
 	}
 
 
+	/**
+	 * Executes a generic SQL query, returning the results stored by columns with their types. Uses less memory
+	 * than executeQuery() and numbers are not converted into strings.
+	 * @param  sql   SQL query to execute.
+	 * @param  args  Arguments of the query, that replace the ? in the query.
+	 * @return Table with the results, or null if there is an error.
+	 */
+	protected ResultTable executeTable(final String sql, final String... args) {
+		return queryManager.executeTable(sql, args);
+	}
+
+
 	/**
 	 * Executes a query and return its result.
 	 * @param  query  Query to execute.
@@ -171,4 +796,30 @@ public class GenericQuery<T> {
 	protected Object executeQuery(final Query query) throws JaiberdroidException {
 		return queryManager.executeQuery(query);
 	}
+
+
+	/**
+	 * Executes a select query that returns a list, never null.
+	 * @param  query  Select query to execute.
+	 * @return List of results. Empty if there are no results.
+	 * @throws JaiberdroidException When there is an error on query.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<T> list(final Query query) throws JaiberdroidException {
+		final List<T> results = (List<T>) queryManager.executeQuery(query);
+
+		return null != results ? results : new ArrayList<T>();
+	}
+
+
+	/**
+	 * Executes a select query, reading the results from database while they are iterated.
+	 * @param  query  Select query to execute.
+	 * @return Results of the query. Must be closed if they are not iterated until the end.
+	 * @throws JaiberdroidException When there is an error on query.
+	 */
+	@SuppressWarnings("unchecked")
+	protected ResultIterator<T> iterate(final Query query) throws JaiberdroidException {
+		return queryManager.executeIterator(query);
+	}
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Objects read by the session opened in a thread, by entity class and id. While the session is opened, the
+ * rows already read are returned as the same objects, without creating them again.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+final class IdentityMap {
+	/** Objects of each entity class, by id. */
+	@SuppressWarnings("rawtypes")
+	private final Map<Class, Map<Long, Object>> objects = new HashMap<Class, Map<Long, Object>>();
+	/** Number of nested sessions opened. */
+	private int depth = 0;
+
+
+	/**
+	 * Opens a nested session.
+	 */
+	void begin() {
+		++depth;
+	}
+
+
+	/**
+	 * Closes the last nested session.
+	 * @return Number of sessions that remain opened.
+	 */
+	int end() {
+		return --depth;
+	}
+
+
+	/**
+	 * Gets an object of the session.
+	 * @param  type  Entity class of the object.
+	 * @param  id    Id of the object.
+	 * @return Object with the id, or null if it's not in the session.
+	 */
+	@SuppressWarnings("rawtypes")
+	Object get(final Class type, final long id) {
+		final Map<Long, Object> entities = objects.get(type);
+
+		return (null != entities) ? entities.get(id) : null;
+	}
+
+
+	/**
+	 * Stores an object in the session.
+	 * @param  type    Entity class of the object.
+	 * @param  id      Id of the object.
+	 * @param  object  Object to store.
+	 */
+	@SuppressWarnings("rawtypes")
+	void put(final Class type, final long id, final Object object) {
+		Map<Long, Object> entities = objects.get(type);
+
+		if (null == entities) {
+			entities = new HashMap<Long, Object>();
+			objects.put(type, entities);
+		}
+		entities.put(id, object);
+	}
+
+
+	/**
+	 * Removes an object of the session.
+	 * @param  type  Entity class of the object.
+	 * @param  id    Id of the object.
+	 */
+	@SuppressWarnings("rawtypes")
+	void remove(final Class type, final long id) {
+		final Map<Long, Object> entities = objects.get(type);
+
+		if (null != entities) {
+			entities.remove(id);
+		}
+	}
+
+
+	/**
+	 * Removes all the objects of an entity class.
+	 * @param  type  Entity class of the objects.
+	 */
+	@SuppressWarnings("rawtypes")
+	void remove(final Class type) {
+		objects.remove(type);
+	}
+
+
+	/**
+	 * Removes all the objects of the session.
+	 */
+	void clear() {
+		objects.clear();
+	}
+
+
+	/**
+	 * Gets the number of objects in the session.
+	 * @return Number of objects.
+	 */
+	int size() {
+		int size = 0;
+
+		for (final Map<Long, Object> entities : objects.values()) {
+			size += entities.size();
+		}
+
+		return size;
+	}
+}
@@ -51,7 +51,18 @@ import es.jafs.jaiberdroid.utils.ContextLoader;
  * <li><b>jaiberdroid_version</b>: string that contains the version number of the database.</li>
  * <li><b>jaiberdroid_debug</b>: boolean value (<b>true</b> or <b>false</b>) that indicates if all SQL queries
  * and other debug traces are written in system Log. By default, if this field not exists, debug mode is set
- * to false.</li></ul>
+ * to false.</li>
+ * <li><b>jaiberdroid_count_cache</b>: boolean value (<b>true</b> or <b>false</b>) that indicates if the number
+ * of rows of the tables is cached, so count() without condition only reads the database once. The counts are
+ * updated by the queries of Jaiberdroid and removed by SQL queries that are not selects. Don't enable it if
+ * the database is modified outside Jaiberdroid. By default false.</li>
+ * <li><b>jaiberdroid_wal</b>: boolean value (<b>true</b> or <b>false</b>) that enables write-ahead logging
+ * (since Android 3.0). Queries are executed in parallel by a pool of read-only connections while the
+ * database is written, so background writes don't stop the selects. By default false.</li>
+ * <li><b>jaiberdroid_query_cache</b>: maximum number of rows of the results of selects kept in memory. The
+ * selects of entities, counts, aggregates and SQL queries are cached by their query and arguments, and
+ * dropped when one of their tables is modified. The tables of SQL queries are found by their names. Don't
+ * enable it if the database is modified outside Jaiberdroid. By default 0, without cache.</li></ul>
  * <p>Below is a sample configuration file:</p>
  * <blockquote>
  * <pre>
@@ -87,8 +98,9 @@ import es.jafs.jaiberdroid.utils.ContextLoader;
  * <p>Entity classes in Jaiberdroid are classes that define a database table. For an entity class, so just add
  * the tag <b>@@Table</b>. This label will indicate the nature of the class to Jaiberdroid.</p>
  * <p>Next, add the tag <b>@@Column</b> to each attribute that represents a database column. Is mandatory to
- * create an attribute of type <b>int</b> called <b>_id</b>, as all tables in Android SQLite use that
- * identifier as <b>Primary Key</b>.</p>
+ * create an attribute of type <b>int</b> or <b>long</b> called <b>_id</b>, as all tables in Android SQLite use
+ * that identifier as <b>Primary Key</b>. Use <b>long</b> for tables that can have more than 2^31 rows over
+ * their life, because ids are not reused.</p>
  * <p>Finally, we must have methods <b>get</b> and <b>set</b> for each attribute mapped. So that Jaiberdroid
  * can execute them when read and assign the values of the attributes.</p>
  * <blockquote><pre>
@@ -143,7 +155,7 @@ import es.jafs.jaiberdroid.utils.ContextLoader;
  * <p>All entity fields in a Entity Class must be indicated by using @@Colum tag. If a field not has this tag,
  * will be ignored by Jaiberdroid.
  * <ul><li><b>primary</b>: boolean value that indicates if the field is primary key. The field that has this
- * tag, must be called _id, of type int. Default <i>false</i>.</li>
+ * tag, must be called _id, of type int or long. Default <i>false</i>.</li>
  * <li><b>unique</b>: boolean value that indicates if the field has unique key. Default <i>false</i>.</li>
  * <li><b>nullable</b>: boolean value that indicates if the field can store null values. Only objects can be
  * null. You can use primitive types when nullable is false. Default <i>true</i>.</li>
@@ -152,7 +164,17 @@ import es.jafs.jaiberdroid.utils.ContextLoader;
  * <li><b>index</b>: boolean value that indicates if current column is an index. Jaiberdroid creates an index
  * for this field called <i>index_tablename_fieldname</i>.</li>
  * <li><b>ascOrder</b>: boolean value that indicates order in index. If it's <i>true</i> order will be
- * ascending, in other case order will be descending. Default <i>true</i>.</li></ul>
+ * ascending, in other case order will be descending. Default <i>true</i>.</li>
+ * <li><b>millis</b>: boolean value that indicates if a Date field is stored as Unix Time in milliseconds. In
+ * other case it's stored in seconds. Default <i>false</i>.</li></ul>
+ * <h3>Generated mappers</h3>
+ * <p>By default, Jaiberdroid uses Java Reflection to read and write the entities. The folder <b>processor</b>
+ * contains an annotation processor that generates, at build time, a mapper class for each entity. Compile it
+ * into a jar file (with the annotations package and the folder <b>META-INF</b>) and add it to the annotation
+ * processing factory path of your project (in Eclipse: <b>Java Compiler</b> &gt; <b>Annotation
+ * Processing</b> &gt; <b>Factory Path</b>).</p>
+ * <p>Generated mappers are named as the entity followed by <b>$$Mapper</b>. When a mapper exists, Jaiberdroid
+ * uses it automatically; entities without mapper are loaded with reflection.</p>
  * <h3>Queries</h3>
  * <p>To request data, we will use classes called Queries, forgive the redundancy. You can use those classes
  * or instantiate the class GenericQuery. In instantiation of classes, a parameter is defined that will be the
@@ -169,34 +191,128 @@ import es.jafs.jaiberdroid.utils.ContextLoader;
  * <h4>GenericQuery direct inheritance example</h4>
  * <blockquote><pre>final GenericQuery query = new GenericQuery&lt;File&gt;;
  * ...</pre></blockquote>
+ * <p>Subclasses can execute SQL queries with <b>executeQuery()</b>, that returns a list of maps of strings, or
+ * with <b>executeTable()</b>, that returns a <b>ResultTable</b> with the values stored by columns with their
+ * types. For large results, executeTable() uses much less memory.</p>
  * <h3>Default queries</h3>
  * <p>When creating a query, we have access to a series of default queries. Such queries are:</p>
  * <table><tr>
  * <th>Method</th><th>Parameter</th><th>Return</th><th>Description</th>
  * </tr><tr>
+ * <td><b>avg()</b></td>
+ * <td><em>String column, [Criteria criteria]</em></td>
+ * <td><em>double</em></td>
+ * <td>Returns the average of a column, calculated in database. Returns NaN when there are no rows.</td>
+ * </tr><tr>
  * <td><b>count()</b></td>
+ * <td><em>[String condition, String... args]</em></td>
+ * <td><em>long</em></td>
+ * <td>Returns a long value with the number of rows, or with the number of rows that satisfy a condition.</td>
+ * </tr><tr>
+ * <td><b>countDistinct()</b></td>
+ * <td><em>String column, [Criteria criteria]</em></td>
+ * <td><em>long</em></td>
+ * <td>Returns the number of distinct values of a column, without nulls.</td>
+ * </tr><tr>
+ * <td><b>countBy()</b></td>
+ * <td><em>String column, Object value</em></td>
+ * <td><em>long</em></td>
+ * <td>Returns the number of rows with a value in a column declared with index or unique.</td>
+ * </tr><tr>
+ * <td><b>criteria()</b></td>
  * <td><em>-</em></td>
+ * <td><em>Criteria</em></td>
+ * <td>Returns a builder of select queries, with conditions over the columns of the entity (eq, ne, lt, le,
+ * gt, ge, between, in, like, isNull, isNotNull, joined with and or or), order, limit and offset. The columns
+ * and values are checked against the entity.</td>
+ * </tr><tr>
+ * <td><b>deleteBy()</b></td>
+ * <td><em>String column, Object value</em></td>
  * <td><em>long</em></td>
- * <td>Returns a long value with the number of rows.</td>
+ * <td>Deletes the rows with a value in a column declared with index or unique. Returns the number of rows
+ * deleted.</td>
  * </tr><tr>
  * <td><b>exists()</b></td>
- * <td><em>int id</em></td>
+ * <td><em>long id</em></td>
  * <td><em>boolean</em></td>
  * <td>Returns a boolean value that will be true when the id received exits.</td>
  * </tr><tr>
+ * <td><b>findBy()</b></td>
+ * <td><em>String column, Object value</em></td>
+ * <td><em>List</em></td>
+ * <td>Returns the rows with a value in a column declared with index or unique. Lookups by other columns
+ * throw an exception. With a unique column, only one row is read.</td>
+ * </tr><tr>
  * <td><b>findByPk()</b></td>
- * <td><em>int id</em></td>
+ * <td><em>long id</em></td>
  * <td><em>Object</em></td>
  * <td>Returns an object of the type of entity class with data of row which id has been received.</td>
  * </tr><tr>
+ * <td><b>findFirstBy()</b></td>
+ * <td><em>String column, Object value</em></td>
+ * <td><em>Object</em></td>
+ * <td>Returns the first row with a value in a column declared with index or unique, or null.</td>
+ * </tr><tr>
+ * <td><b>getAll()</b></td>
+ * <td><em>[Order... orders]</em></td>
+ * <td><em>List</em></td>
+ * <td>Returns all the rows of the table, in the orders received.</td>
+ * </tr><tr>
+ * <td><b>groupBy()</b></td>
+ * <td><em>[Criteria criteria], String[] columns, Aggregate... aggregates</em></td>
+ * <td><em>ResultTable</em></td>
+ * <td>Groups the rows by the columns received and returns a table with the columns and the aggregates
+ * (Aggregate.count(), sum(), avg(), min(), max() or countDistinct()) of each group. The order and limit of
+ * the criteria are applied to the groups.</td>
+ * </tr><tr>
  * <td><b>insert()</b></td>
  * <td><em>Object row</em></td>
  * <td><em>boolean</em></td>
  * <td>Stores in database the object received as parameter. Returns a boolean value that indicates if the
  * insert was right, and also updates the id in the object.</td>
  * </tr><tr>
+ * <td><b>insertAll()</b></td>
+ * <td><em>Collection or Iterator rows, [int commitInterval]</em></td>
+ * <td><em>long[]</em></td>
+ * <td>Stores in database all the objects received, in one transaction or in a transaction every
+ * <em>commitInterval</em> rows. Updates the id in the objects and returns the rows inserted in each
+ * transaction.</td>
+ * </tr><tr>
+ * <td><b>insertIfAbsent()</b></td>
+ * <td><em>Object row</em></td>
+ * <td><em>boolean</em></td>
+ * <td>Stores the object received only if there is no row with its id or with the same value in a unique
+ * column. Returns false if the row already exists.</td>
+ * </tr><tr>
+ * <td><b>iterateAll()</b></td>
+ * <td><em>[Order... orders]</em></td>
+ * <td><em>ResultIterator</em></td>
+ * <td>Returns all the rows of the table. Objects are created while they are iterated, so the table is not
+ * loaded in memory. Results must be closed if they are not iterated until the end.</td>
+ * </tr><tr>
+ * <td><b>max()</b></td>
+ * <td><em>String column, [Criteria criteria]</em></td>
+ * <td><em>double</em></td>
+ * <td>Returns the maximum value of a column. Returns NaN when there are no rows.</td>
+ * </tr><tr>
+ * <td><b>min()</b></td>
+ * <td><em>String column, [Criteria criteria]</em></td>
+ * <td><em>double</em></td>
+ * <td>Returns the minimum value of a column. Returns NaN when there are no rows.</td>
+ * </tr><tr>
+ * <td><b>page()</b></td>
+ * <td><em>int offset, int limit, Order order</em></td>
+ * <td><em>List</em></td>
+ * <td>Returns a page of rows in the order received (by id if order is null).</td>
+ * </tr><tr>
+ * <td><b>pageAfter()</b></td>
+ * <td><em>[Order order, Object lastValue], long lastId, int limit</em></td>
+ * <td><em>List</em></td>
+ * <td>Returns the page of rows that follows the last row of the previous page (keyset pagination), by id or
+ * by the column of the order. Faster than page() far from the start of large tables.</td>
+ * </tr><tr>
  * <td><b>remove()</b></td>
- * <td><em>int id</em></td>
+ * <td><em>long id</em></td>
  * <td><em>boolean</em></td>
  * <td>Deletes the row which id receives as parameter, returns if row has been deleted.</td>
  * </tr><tr>
@@ -205,12 +321,57 @@ import es.jafs.jaiberdroid.utils.ContextLoader;
  * <td><em>long</em></td>
  * <td>Delete all rows in the table. Returns a long value that indicates the number of rows deleted.</td>
  * </tr><tr>
+ * <td><b>sum()</b></td>
+ * <td><em>String column, [Criteria criteria]</em></td>
+ * <td><em>double</em></td>
+ * <td>Returns the sum of a column, calculated in database. Returns 0 when there are no rows.</td>
+ * </tr><tr>
  * <td><b>update()</b></td>
  * <td><em>Object row</em></td>
  * <td><em>boolean</em></td>
  * <td>Updates entity object received. Returns a boolean value that indicates if the update query ends
  * successfully.</td>
+ * </tr><tr>
+ * <td><b>upsert()</b></td>
+ * <td><em>Object row</em></td>
+ * <td><em>boolean</em></td>
+ * <td>Stores the object received, replacing the row with its id or with the same value in a unique
+ * column.</td>
+ * </tr><tr>
+ * <td><b>upsertAll()</b></td>
+ * <td><em>Collection rows</em></td>
+ * <td><em>long[]</em></td>
+ * <td>Stores or replaces all the objects received in one transaction, as upsert().</td>
  * </tr></table>
+ * <h3>Async queries</h3>
+ * <p>The class <b>AsyncQuery</b> executes the default queries of a GenericQuery in background threads. Each
+ * operation returns a Future and can receive a callback, called in the thread of the operation or in other
+ * Executor, like <b>AsyncQuery.mainThread()</b>. The operations can be executed in any Executor; by default
+ * they use a pool of two threads. Cancelling the Future of a select stops it since Android 4.1.</p>
+ * <blockquote><pre>new AsyncQuery&lt;File&gt;(query, AsyncQuery.mainThread()).getAll(callback);</pre></blockquote>
+ * <h3>Transactions</h3>
+ * <p>Each insert, update or delete is executed in its own transaction. To commit several queries at once, use
+ * <b>Transaction.runInTransaction()</b>, or <b>Transaction.begin()</b> with <b>commit()</b> and
+ * <b>end()</b>. Queries executed inside don't open their own transactions, and nested transactions are
+ * savepoints that can be rolled back without undoing the rest of the work.</p>
+ * <h3>Change listeners</h3>
+ * <p>The method <b>addChangeListener()</b> of a GenericQuery registers a <b>ChangeEvent.Listener</b> that is
+ * called after the changes of the entity are committed, with the operations and the ids of the rows changed
+ * when they are known. All the changes of a transaction or of an insertAll() are published in only one event
+ * for each table. Listeners can be called in an Executor, like AsyncQuery.mainThread().</p>
+ * <blockquote><pre>query.addChangeListener(listener, AsyncQuery.mainThread());</pre></blockquote>
+ * <h3>Entity cache</h3>
+ * <p>The rows of an entity can be kept in memory with the attribute <b>cacheSize</b> of the tag @@Table,
+ * the maximum number of rows cached, and optionally <b>cacheTtl</b>, the milliseconds that the rows are
+ * cached. findByPk() and getAll() without orders read the cache, and the rows are removed when the table
+ * is modified. The cache of a table is checked with <b>getCacheHits()</b> and <b>getCacheMisses()</b> of
+ * its GenericQuery, and all the caches are emptied with <b>JaiberdroidInstance.releaseMemory()</b>.</p>
+ * <blockquote><pre>@@Table(name = "settings", cacheSize = 50)</pre></blockquote>
+ * <h3>Sessions</h3>
+ * <p>By default, each select creates new objects. Inside a <b>Session</b>, opened with <b>Session.open()</b>
+ * and closed with <b>close()</b>, the rows already read are returned as the same objects, and findByPk()
+ * doesn't read the database for them. Sessions belong to the thread that opens them, so async queries don't
+ * use them.</p>
  */
 
 
@@ -317,7 +478,10 @@ public final class JaiberdroidInstance {
 
 		// Create new query manager.
 		queryManager = new QueryManager(context, entityManager, ContextLoader.getContext().getVersion(),
-										ContextLoader.getContext().getDatabase());
+										ContextLoader.getContext().getDatabase(),
+										ContextLoader.getContext().isCountCache(),
+										ContextLoader.getContext().isWal(),
+										ContextLoader.getContext().getQueryCache());
 	}
 
 
@@ -334,11 +498,28 @@ public final class JaiberdroidInstance {
 	 * Stops the Jaiberdroid system.
 	 */
 	private void stopJaiberdroid() {
+		if (null != queryManager) {
+			queryManager.close();
+		}
 		SQLiteDatabase.releaseMemory();
 		entityManager.clear();
 	}
 
 
+	/**
+	 * Releases the memory used by the caches: cached counts, rows of the entities and objects of the
+	 * session of the current thread. Can be called when the system has low memory.
+	 */
+	public static void releaseMemory() {
+		final QueryManager queryManager = getQueryManager();
+
+		if (null != queryManager) {
+			queryManager.clearCaches();
+		}
+		SQLiteDatabase.releaseMemory();
+	}
+
+
 	/**
 	 * Gets the Query Manager.
 	 * @return Instance of the Query Manager.
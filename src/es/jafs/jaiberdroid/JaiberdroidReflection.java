@@ -17,6 +17,7 @@ package es.jafs.jaiberdroid;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.Date;
 import java.util.Locale;
 
@@ -82,6 +83,31 @@ public final class JaiberdroidReflection {
 	}
 
 
+	/**
+	 * Executes the get method resolved for a field.
+	 * @param  field   Field to read.
+	 * @param  object  Object that contains the field.
+	 * @return Value returned by the get method.
+	 * @throws JaiberdroidException 
+	 */
+	static Object executeGetMethod(final Field field, final Object object) throws JaiberdroidException {
+		return invoke(field.getGetter(), object);
+	}
+
+
+	/**
+	 * Executes the set method resolved for a field.
+	 * @param  field   Field to write.
+	 * @param  object  Object that contains the field.
+	 * @param  value   Value to set, with the type of the attribute.
+	 * @throws JaiberdroidException 
+	 */
+	static void executeSetMethod(final Field field, final Object object, final Object value)
+								throws JaiberdroidException {
+		invoke(field.getSetter(), object, value);
+	}
+
+
 	/**
 	 * Executes a method with received parameters.
 	 * @param name      Method name.
@@ -98,20 +124,14 @@ public final class JaiberdroidReflection {
 
 		try {
 			if (readOnly) { // Methods of type GET.
-				result = object.getClass().getMethod(name, new Class[0]).invoke(object, new Object[0]);
+				result = invoke(object.getClass().getMethod(name, new Class[0]), object);
 			} else if (Date.class.equals(type)) { // Methods of type SET. Date are loaded from int values
-				object.getClass().getMethod(name, type).invoke(object, new Date(((Long) value) * 1000));
+				invoke(object.getClass().getMethod(name, type), object, new Date(((Long) value) * 1000));
 			} else {
-				object.getClass().getMethod(name, type).invoke(object, value);
+				invoke(object.getClass().getMethod(name, type), object, value);
 			}
-		} catch (final IllegalArgumentException e) {
-			throw new JaiberdroidException("Illegal argument: " + e.getMessage());
 		} catch (final SecurityException e) {
 			throw new JaiberdroidException("Security Exception: " + e.getMessage());
-		} catch (final IllegalAccessException e) {
-			throw new JaiberdroidException("Illegal access: " + e.getMessage());
-		} catch (final InvocationTargetException e) {
-			throw new JaiberdroidException("Invocation exception: " + e.getMessage());
 		} catch (final NoSuchMethodException e) {
 			throw new JaiberdroidException("No such method: " + e.getMessage());
 		}
@@ -120,6 +140,28 @@ public final class JaiberdroidReflection {
 	}
 
 
+	/**
+	 * Invokes a method over an object.
+	 * @param  method  Method to invoke.
+	 * @param  object  Object that contains the method.
+	 * @param  args    Arguments of the method.
+	 * @return Value with result of method execution.
+	 * @throws JaiberdroidException 
+	 */
+	private static Object invoke(final Method method, final Object object, final Object... args)
+								throws JaiberdroidException {
+		try {
+			return method.invoke(object, args);
+		} catch (final IllegalArgumentException e) {
+			throw new JaiberdroidException("Illegal argument: " + e.getMessage());
+		} catch (final IllegalAccessException e) {
+			throw new JaiberdroidException("Illegal access: " + e.getMessage());
+		} catch (final InvocationTargetException e) {
+			throw new JaiberdroidException("Invocation exception: " + e.getMessage());
+		}
+	}
+
+
 	/**
 	 * Load an analyze an entity.
 	 * @param  type  Class to add.
@@ -134,8 +176,19 @@ public final class JaiberdroidReflection {
 			throw new JaiberdroidException("Class " + type.getName() + " has no annotation Table");
 		}
 
+		// Load the generated mapper. If not exists, columns and their methods are loaded with reflection.
+		final EntityMapper mapper = loadMapper(type);
+		entity.setMapper(mapper);
+
 		// Load columns data.
-		loadColumns(type, entity);
+		if (null != mapper) {
+			loadColumns(mapper, entity);
+		} else {
+			loadColumns(type, entity);
+		}
+		if (!entity.hasKey()) {
+			throw new JaiberdroidException("Class " + type.getName() + " has no primary key _id");
+		}
 		entity.setLoaded(true);
 
 		return entity;
@@ -163,6 +216,9 @@ public final class JaiberdroidReflection {
 				entity = new Entity();
 				entity.setTableName(name);
 				entity.setReferenced(type);
+				if (((Table) note).cacheSize() > 0) {
+					entity.setCache(new EntityCache(((Table) note).cacheSize(), ((Table) note).cacheTtl()));
+				}
 				break;
 			}
 		}
@@ -171,6 +227,33 @@ public final class JaiberdroidReflection {
 	}
 
 
+	/**
+	 * Loads the mapper generated for an entity class.
+	 * @param  type  Class of entity.
+	 * @return Instance of the mapper or null if the class has no generated mapper.
+	 * @throws JaiberdroidException 
+	 */
+	@SuppressWarnings("rawtypes")
+	private static EntityMapper loadMapper(final Class type) throws JaiberdroidException {
+		EntityMapper mapper = null;
+
+		try {
+			mapper = (EntityMapper) Class.forName(type.getName() + EntityMapper.SUFFIX, true,
+												type.getClassLoader()).newInstance();
+		} catch (final ClassNotFoundException e) {
+			// There is no generated mapper, reflection is used.
+		} catch (final InstantiationException e) {
+			throw new JaiberdroidException("Mapper of " + type.getName() + " not loaded: " + e.getMessage());
+		} catch (final IllegalAccessException e) {
+			throw new JaiberdroidException("Illegal access: " + e.getMessage());
+		} catch (final ClassCastException e) {
+			throw new JaiberdroidException("Invalid mapper for " + type.getName());
+		}
+
+		return mapper;
+	}
+
+
 	/**
 	 * Loads the columns of database in the object.
 	 * @param  entity  Entity to analize.
@@ -186,13 +269,52 @@ public final class JaiberdroidReflection {
 			annotations = current.getDeclaredAnnotations();
 			for (Annotation note : annotations) {
 				if (note instanceof Column) {
-					entity.appendField(getColumn(current, (Column) note));
+					final Field field = getColumn(current, (Column) note);
+					loadAccessors(type, current, field);
+					entity.appendField(field);
 				}
 			}
 		}
+	}
 
-		if (!entity.hasKey()) {
-			throw new JaiberdroidException("Class " + type.getName() + " has no primary key _id");
+
+	/**
+	 * Loads the columns described by the generated mapper of an entity, without reading its attributes.
+	 * @param  mapper  Mapper of the entity.
+	 * @param  entity  Entity to load.
+	 * @throws JaiberdroidException 
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void loadColumns(final EntityMapper mapper, final Entity entity) throws JaiberdroidException {
+		mapper.loadColumns(new EntityMapper.ColumnLoader() {
+			@Override
+			public void add(final String name, final Class<?> type, final boolean primary, final boolean unique,
+							final boolean nullable, final String defaultValue, final boolean index,
+							final boolean ascOrder, final boolean millis) throws JaiberdroidException {
+				entity.appendField(getColumn(name, type, primary, unique, nullable, defaultValue, index, ascOrder,
+											millis));
+			}
+		});
+	}
+
+
+	/**
+	 * Resolves the get and set methods of a field, so they are not searched on every row.
+	 * @param  type       Class of entity.
+	 * @param  attribute  Attribute of the field.
+	 * @param  field      Field that stores the methods.
+	 * @throws JaiberdroidException 
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void loadAccessors(final Class type, final java.lang.reflect.Field attribute,
+									final Field field) throws JaiberdroidException {
+		try {
+			field.setGetter(type.getMethod(getMethodGet(field.getName(), field.getType())));
+			field.setSetter(type.getMethod(getMethodSet(field.getName()), attribute.getType()));
+		} catch (final SecurityException e) {
+			throw new JaiberdroidException("Security Exception: " + e.getMessage());
+		} catch (final NoSuchMethodException e) {
+			throw new JaiberdroidException("No such method: " + e.getMessage());
 		}
 	}
 
@@ -204,15 +326,41 @@ public final class JaiberdroidReflection {
 	 */
 	private static Field getColumn(final java.lang.reflect.Field attribute, final Column annotation)
 								throws JaiberdroidException {
-		final String name = attribute.getName();
-		final String typeName = attribute.getType().getName();
+		return getColumn(attribute.getName(), attribute.getType(), annotation.primary(), annotation.unique(),
+						annotation.nullable(), annotation.defaultValue(), annotation.index(), annotation.ascOrder(),
+						annotation.millis());
+	}
+
+
+	/**
+	 * Process a field with the values of its annotation.
+	 * @param  name           Name of the attribute.
+	 * @param  attributeType  Class of the attribute.
+	 * @param  primary        Boolean value that indicates if the field is primary key.
+	 * @param  unique         Boolean value that indicates if the field has unique key.
+	 * @param  nullable       Boolean value that indicates if the field can store null values.
+	 * @param  defaultValue   Default value of the column, or empty string.
+	 * @param  index          Boolean value that indicates if the column is indexed.
+	 * @param  ascOrder       Boolean value that indicates the order of the index.
+	 * @param  millis         Boolean value that indicates if dates are stored with millisecond precision.
+	 * @return Field of the column.
+	 * @throws JaiberdroidException When the field is not valid.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static Field getColumn(final String name, final Class attributeType, final boolean primary,
+								final boolean unique, final boolean nullable, final String defaultValue,
+								final boolean index, final boolean ascOrder, final boolean millis)
+								throws JaiberdroidException {
+		final String typeName = attributeType.getName();
 		Field field = null;
 
-		if (annotation.primary()) {
+		if (primary) {
 			if (int.class.getName().equals(typeName)) {
 				field = new Field(name, int.class);
+			} else if (long.class.getName().equals(typeName)) {
+				field = new Field(name, long.class);
 			} else {
-				throw new JaiberdroidException("Primary key must be of int type");
+				throw new JaiberdroidException("Primary key must be of int or long type");
 			}
 		} else {
 			FieldTypes type = FieldTypes.NULL;
@@ -231,39 +379,47 @@ public final class JaiberdroidReflection {
 			} else if (Date.class.getName().equals(typeName)) {
 				type = FieldTypes.DATE;
 			} else {
-				throw new JaiberdroidException("Invalid data type: " + attribute.getType().getName());
+				throw new JaiberdroidException("Invalid data type: " + attributeType.getName());
 			}
 
 			// If attribute is null and primitive type, but no has annotation launch an exception.
-			if (annotation.nullable() && isPrimitive(attribute.getType())) {
+			if (nullable && isPrimitive(attributeType)) {
 				final StringBuilder error = new StringBuilder();
 				error.append("In field ");
-				error.append(attribute.getName());
+				error.append(name);
 				error.append(". Primitive fields can be nullables.");
 				throw new JaiberdroidException(error.toString());
 			}
 
-			field = new Field(name, type, annotation.nullable(), annotation.unique(), attribute.getType());
+			field = new Field(name, type, nullable, unique, attributeType);
 
 			// Cheks the default value if exists.
 			try {
-				if (!TextUtils.isEmpty(annotation.defaultValue())) {
+				if (!TextUtils.isEmpty(defaultValue)) {
 					if (type.equals(FieldTypes.INTEGER)) {
-						Integer.parseInt(annotation.defaultValue());
+						Integer.parseInt(defaultValue);
 					} else if (type.equals(FieldTypes.REAL)) {
-						Double.parseDouble(annotation.defaultValue());
+						Double.parseDouble(defaultValue);
 					}
 				}
 
-				field.setDefaultValue(annotation.defaultValue());
+				field.setDefaultValue(defaultValue);
 			} catch (final NumberFormatException e) {
-				throw new JaiberdroidException("Invalid default value for numeric field: "
-											+ attribute.getName());
+				throw new JaiberdroidException("Invalid default value for numeric field: " + name);
 			}
 
 			// Configure the index value.
-			field.setIndex(annotation.index());
-			field.setAscOrder(annotation.ascOrder());
+			field.setIndex(index);
+			field.setAscOrder(ascOrder);
+
+			// Configure the precision of dates.
+			if (millis) {
+				if (!FieldTypes.DATE.equals(type)) {
+					throw new JaiberdroidException("In field " + name
+												+ ". Only Date fields can have millisecond precision.");
+				}
+				field.setMillis(true);
+			}
 		}
 
 		return field;
@@ -16,9 +16,14 @@
 package es.jafs.jaiberdroid;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
+import android.database.sqlite.SQLiteDatabase;
 import android.provider.BaseColumns;
 import android.text.TextUtils;
 
@@ -28,6 +33,24 @@ import android.text.TextUtils;
  * @version 0.5
  */
 final class JaiberdroidSql implements BaseColumns {
+	/** Condition of a row by its primary key. */
+	static final String KEY_CONDITION = _ID + " = ?";
+	/** Table that marks the databases whose booleans stored as text have been converted. */
+	static final String BOOLEANS_TABLE = "jaiberdroid_booleans";
+	/** Creation of the table that marks the databases whose booleans have been converted. */
+	static final String CREATE_BOOLEANS_TABLE = "CREATE TABLE IF NOT EXISTS " + BOOLEANS_TABLE + " (" + _ID
+												+ " INTEGER)";
+	/** Keywords followed by a table. */
+	private static final Set<String> TABLE_KEYWORDS = new HashSet<String>(Arrays.asList("FROM", "JOIN", "INTO",
+																						"UPDATE", "TABLE"));
+	/** Keywords that can be between a keyword and its table. */
+	private static final Set<String> TABLE_MODIFIERS = new HashSet<String>(Arrays.asList("IF", "NOT", "EXISTS",
+												"OR", "ROLLBACK", "ABORT", "REPLACE", "FAIL", "IGNORE", "ONLY"));
+	/** Keywords that can follow the keywords of tables without a table, like UPDATE OF in triggers. */
+	private static final Set<String> CLAUSE_KEYWORDS = new HashSet<String>(Arrays.asList("ON", "OF", "SET",
+												"WHERE", "SELECT", "VALUES", "DEFAULT", "BEGIN", "WITH"));
+	/** Count of the tables with a name, received as argument. */
+	static final String TABLE_EXISTS = "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?";
 	/** Start of count function. */
 	private static final String SQL_COUNT_INI = "COUNT";
 	/** Start of create table command. */
@@ -38,6 +61,55 @@ final class JaiberdroidSql implements BaseColumns {
 	private static final String SQL_SELECT = "SELECT ";
 	/** From parameter. */
 	private static final String SQL_FROM = " FROM ";
+	/** Start of insert command. */
+	private static final String SQL_INSERT = "INSERT INTO ";
+	/** Insert command with conflict clause. */
+	private static final String SQL_INSERT_OR = "INSERT OR ";
+	/** Into parameter of insert with conflict clause. */
+	private static final String SQL_INTO = " INTO ";
+	/** Names of the conflict algorithms, indexed by the constants CONFLICT_ of SQLiteDatabase. */
+	private static final String[] CONFLICT_NAMES = {"", "ROLLBACK", "ABORT", "FAIL", "IGNORE", "REPLACE"};
+	/** Values parameter. */
+	private static final String SQL_VALUES = " VALUES ";
+	/** Default values parameter, used in inserts without columns. */
+	private static final String SQL_DEFAULT_VALUES = " DEFAULT VALUES";
+	/** Start of update command. */
+	private static final String SQL_UPDATE = "UPDATE ";
+	/** Set parameter. */
+	private static final String SQL_SET = " SET ";
+	/** Start of delete command. */
+	private static final String SQL_DELETE = "DELETE FROM ";
+	/** Where parameter. */
+	private static final String SQL_WHERE = " WHERE ";
+	/** Select of a constant value, that doesn't read any column. */
+	private static final String SQL_SELECT_ONE = "SELECT 1";
+	/** Group by parameter. */
+	private static final String SQL_GROUP_BY = " GROUP BY ";
+	/** Order by parameter. */
+	private static final String SQL_ORDER_BY = " ORDER BY ";
+	/** Limit parameter. */
+	private static final String SQL_LIMIT = " LIMIT ";
+	/** Limit of one row. */
+	private static final String SQL_LIMIT_ONE = " LIMIT 1";
+	/** Savepoint command. */
+	private static final String SQL_SAVEPOINT = "SAVEPOINT ";
+	/** Release savepoint command. */
+	private static final String SQL_RELEASE = "RELEASE ";
+	/**
+	 * Rollback to savepoint command. Starts with a semicolon because Android executes the commands that start
+	 * with ROLLBACK as the end of the transaction.
+	 */
+	private static final String SQL_ROLLBACK_TO = ";ROLLBACK TO ";
+	/** Prefix of savepoints names. */
+	private static final String SAVEPOINT_PREFIX = "jaiberdroid_";
+	/** Or operator. */
+	private static final String SQL_OR = " OR ";
+	/** And operator. */
+	private static final String SQL_AND = " AND ";
+	/** Limit used when a query has offset but not limit. */
+	private static final String SQL_NO_LIMIT = Long.toString(Long.MAX_VALUE);
+	/** Parameter of a compiled statement. */
+	private static final char SQL_PARAM = '?';
 	/** Start of count function. */
 	private static final char SQL_FUNCTION_INI = '(';
 	/** End of count function. */
@@ -165,6 +237,493 @@ final class JaiberdroidSql implements BaseColumns {
 	}
 
 
+	/**
+	 * Gets a select SQL query.
+	 * @param  table      Name of the table.
+	 * @param  columns    Columns or expressions selected.
+	 * @param  condition  Condition of the rows, or null to select all the rows.
+	 * @param  groupBy    Columns of the groups, or null.
+	 * @param  orderBy    Order by clause, without the ORDER BY command, or null.
+	 * @param  limit      Limit clause, without the LIMIT command, or null.
+	 * @return String with the select SQL query.
+	 */
+	public static String getSelectSql(final String table, final String[] columns, final String condition,
+									  final String[] groupBy, final String orderBy, final String limit) {
+		final StringBuilder objSql = new StringBuilder();
+
+		objSql.append(SQL_SELECT);
+		objSql.append(TextUtils.join(",", columns));
+		objSql.append(SQL_FROM);
+		objSql.append(table);
+		appendWhere(objSql, condition);
+		if (null != groupBy && groupBy.length > 0) {
+			objSql.append(SQL_GROUP_BY);
+			objSql.append(TextUtils.join(",", groupBy));
+		}
+		if (!TextUtils.isEmpty(orderBy)) {
+			objSql.append(SQL_ORDER_BY);
+			objSql.append(orderBy);
+		}
+		if (!TextUtils.isEmpty(limit)) {
+			objSql.append(SQL_LIMIT);
+			objSql.append(limit);
+		}
+
+		return objSql.toString();
+	}
+
+
+	/**
+	 * Gets the SQL query that checks if a row exists, with the id as parameter. Only reads the primary key.
+	 * @param  table  Name of the table.
+	 * @return String with the exists SQL query.
+	 */
+	public static String getExistsSql(final String table) {
+		final StringBuilder objSql = new StringBuilder();
+
+		objSql.append(SQL_SELECT_ONE);
+		objSql.append(SQL_FROM);
+		objSql.append(table);
+		objSql.append(SQL_WHERE);
+		objSql.append(_ID);
+		objSql.append(" = ");
+		objSql.append(SQL_PARAM);
+		objSql.append(SQL_LIMIT_ONE);
+
+		return objSql.toString();
+	}
+
+
+	/**
+	 * Gets the count SQL query of the rows of a table that satisfy a condition.
+	 * @param  table      Name of the table.
+	 * @param  condition  Condition of the rows to count.
+	 * @return String with the count SQL query.
+	 */
+	public static String getCountSql(final String table, final String condition) {
+		final StringBuilder objSql = new StringBuilder(getCountSql(table));
+
+		appendWhere(objSql, condition);
+
+		return objSql.toString();
+	}
+
+
+	/**
+	 * Gets an insert SQL query with parameters, for compiled statements.
+	 * @param  table    Name of the table.
+	 * @param  columns  Names of the columns to insert, in the order of the parameters.
+	 * @return String with the insert SQL query.
+	 */
+	public static String getInsertSql(final String table, final String[] columns) {
+		return getInsertSql(table, columns, SQLiteDatabase.CONFLICT_NONE);
+	}
+
+
+	/**
+	 * Gets an insert SQL query with parameters and a conflict clause, for compiled statements.
+	 * @param  table     Name of the table.
+	 * @param  columns   Names of the columns to insert, in the order of the parameters.
+	 * @param  conflict  Conflict algorithm, one of the constants CONFLICT_ of SQLiteDatabase.
+	 * @return String with the insert SQL query.
+	 */
+	public static String getInsertSql(final String table, final String[] columns, final int conflict) {
+		final StringBuilder objSql = new StringBuilder();
+
+		if (SQLiteDatabase.CONFLICT_NONE == conflict) {
+			objSql.append(SQL_INSERT);
+		} else {
+			objSql.append(SQL_INSERT_OR);
+			objSql.append(CONFLICT_NAMES[conflict]);
+			objSql.append(SQL_INTO);
+		}
+		objSql.append(table);
+		if (0 == columns.length) {
+			objSql.append(SQL_DEFAULT_VALUES);
+			return objSql.toString();
+		}
+
+		objSql.append(' ');
+		objSql.append(SQL_FUNCTION_INI);
+		for (int i = 0; i < columns.length; ++i) {
+			if (i > 0) {
+				objSql.append(',');
+			}
+			objSql.append(columns[i]);
+		}
+		objSql.append(SQL_FUNCTION_END);
+		objSql.append(SQL_VALUES);
+		objSql.append(SQL_FUNCTION_INI);
+		for (int i = 0; i < columns.length; ++i) {
+			if (i > 0) {
+				objSql.append(',');
+			}
+			objSql.append(SQL_PARAM);
+		}
+		objSql.append(SQL_FUNCTION_END);
+
+		return objSql.toString();
+	}
+
+
+	/**
+	 * Gets an update SQL query with parameters, for compiled statements.
+	 * @param  table      Name of the table.
+	 * @param  columns    Names of the columns to update, in the order of the parameters.
+	 * @param  condition  Condition of the rows to update, or null to update all the rows.
+	 * @return String with the update SQL query.
+	 */
+	public static String getUpdateSql(final String table, final String[] columns, final String condition) {
+		final StringBuilder objSql = new StringBuilder();
+
+		objSql.append(SQL_UPDATE);
+		objSql.append(table);
+		objSql.append(SQL_SET);
+		for (int i = 0; i < columns.length; ++i) {
+			if (i > 0) {
+				objSql.append(',');
+			}
+			objSql.append(columns[i]);
+			objSql.append('=');
+			objSql.append(SQL_PARAM);
+		}
+		appendWhere(objSql, condition);
+
+		return objSql.toString();
+	}
+
+
+	/**
+	 * Gets a delete SQL query, for compiled statements.
+	 * @param  table      Name of the table.
+	 * @param  condition  Condition of the rows to delete, or null to delete all the rows.
+	 * @return String with the delete SQL query.
+	 */
+	public static String getDeleteSql(final String table, final String condition) {
+		final StringBuilder objSql = new StringBuilder();
+
+		objSql.append(SQL_DELETE);
+		objSql.append(table);
+		appendWhere(objSql, condition);
+
+		return objSql.toString();
+	}
+
+
+	/**
+	 * Gets the SQL query that converts the booleans stored as the text true or false by previous versions into
+	 * 1 and 0.
+	 * @param  table   Name of the table.
+	 * @param  column  Name of the boolean column.
+	 * @return String with the update SQL query.
+	 */
+	public static String getBooleanConversionSql(final String table, final String column) {
+		return "UPDATE " + table + " SET " + column + " = (" + column + " = 'true') WHERE " + column
+			   + " IN ('true','false')";
+	}
+
+
+	/**
+	 * Gets the order by clause of a query, without the ORDER BY command.
+	 * @param  entity  Entity of the query.
+	 * @param  orders  Orders of the query.
+	 * @return String with the order clause, or null if there are no orders.
+	 * @throws JaiberdroidException When a column is not in the entity.
+	 */
+	public static String getOrderSql(final Entity entity, final Order... orders) throws JaiberdroidException {
+		if (null == orders || 0 == orders.length) {
+			return null;
+		}
+
+		final StringBuilder objSql = new StringBuilder();
+		for (final Order order : orders) {
+			if (objSql.length() > 0) {
+				objSql.append(',');
+			}
+			objSql.append(order.getColumn());
+			objSql.append(' ');
+			if (order.isAscending(entity.getField(order.getColumn()))) {
+				objSql.append(INDEX_ASC);
+			} else {
+				objSql.append(INDEX_DESC);
+			}
+		}
+
+		return objSql.toString();
+	}
+
+
+	/**
+	 * Gets the limit clause of a query, without the LIMIT command.
+	 * @param  offset  Number of rows skipped.
+	 * @param  limit   Maximum number of rows. With 0 or less, there is no maximum.
+	 * @return String with the limit clause, or null if the query has no limit and no offset.
+	 */
+	public static String getLimitSql(final int offset, final int limit) {
+		String objSql = null;
+
+		if (offset > 0) {
+			objSql = offset + "," + (limit > 0 ? Integer.toString(limit) : SQL_NO_LIMIT);
+		} else if (limit > 0) {
+			objSql = Integer.toString(limit);
+		}
+
+		return objSql;
+	}
+
+
+	/**
+	 * Gets the condition for keyset pagination: rows after a value of a column, using the id to break ties.
+	 * Needs three arguments: the value of the column twice and the id.
+	 * @param  column       Name of the column.
+	 * @param  ascending    Boolean value that is true when the order of the column is ascending.
+	 * @param  idAscending  Boolean value that is true when the order of the id is ascending.
+	 * @return String with the condition.
+	 */
+	public static String getKeysetCondition(final String column, final boolean ascending,
+											final boolean idAscending) {
+		final StringBuilder objSql = new StringBuilder();
+
+		objSql.append(SQL_FUNCTION_INI);
+		objSql.append(column).append(' ').append(ascending ? '>' : '<').append(' ').append(SQL_PARAM);
+		objSql.append(SQL_OR);
+		objSql.append(SQL_FUNCTION_INI);
+		objSql.append(column).append(" = ").append(SQL_PARAM);
+		objSql.append(SQL_AND);
+		objSql.append(_ID).append(' ').append(idAscending ? '>' : '<').append(' ').append(SQL_PARAM);
+		objSql.append(SQL_FUNCTION_END);
+		objSql.append(SQL_FUNCTION_END);
+
+		return objSql.toString();
+	}
+
+
+	/**
+	 * Gets a boolean value that indicates if an order can be read from an index, without sorting the rows.
+	 * Indexes have one column and store the id after it in ascending order, so an order is backed when the
+	 * first column is the primary key, is unique or has index, and the only other column is the id with the
+	 * direction stored in the index.
+	 * @param  entity  Entity of the query.
+	 * @param  orders  Orders of the query.
+	 * @return Boolean value that is true if the order is backed by an index.
+	 * @throws JaiberdroidException When a column is not in the entity.
+	 */
+	static boolean isIndexedOrder(final Entity entity, final Order... orders) throws JaiberdroidException {
+		final Field field = entity.getField(orders[0].getColumn());
+		boolean indexed = false;
+
+		if (field.isPrimary() || field.isUnique()) {
+			// There are no ties, so next columns don't change the order.
+			indexed = true;
+		} else if (field.isIndex()) {
+			if (1 == orders.length) {
+				indexed = true;
+			} else if (2 == orders.length && _ID.equals(orders[1].getColumn())) {
+				indexed = isIdAscending(field, orders[0].isAscending(field))
+						  == orders[1].isAscending(entity.getField(_ID));
+			}
+		}
+
+		return indexed;
+	}
+
+
+	/**
+	 * Gets the direction of the ids inside rows with the same value, when an index is read in an order.
+	 * @param  field      Field of the index.
+	 * @param  ascending  Boolean value that is true when the index is read in ascending order.
+	 * @return Boolean value that is true when the ids are read in ascending order.
+	 */
+	static boolean isIdAscending(final Field field, final boolean ascending) {
+		return ascending == field.isAscOrder();
+	}
+
+
+	/**
+	 * Gets the SQL command that creates a savepoint.
+	 * @param  depth  Depth of the nested transaction.
+	 * @return String with the savepoint command.
+	 */
+	public static String getSavepointSql(final int depth) {
+		return SQL_SAVEPOINT + SAVEPOINT_PREFIX + depth;
+	}
+
+
+	/**
+	 * Gets the SQL command that releases a savepoint, keeping its changes in the transaction.
+	 * @param  depth  Depth of the nested transaction.
+	 * @return String with the release command.
+	 */
+	public static String getReleaseSql(final int depth) {
+		return SQL_RELEASE + SAVEPOINT_PREFIX + depth;
+	}
+
+
+	/**
+	 * Gets the SQL command that undoes the changes made after a savepoint.
+	 * @param  depth  Depth of the nested transaction.
+	 * @return String with the rollback command.
+	 */
+	public static String getRollbackToSql(final int depth) {
+		return SQL_ROLLBACK_TO + SAVEPOINT_PREFIX + depth;
+	}
+
+
+	/**
+	 * Gets the names of the tables used by a SQL query. Tables are the identifiers after FROM, JOIN, INTO,
+	 * UPDATE and TABLE, the lists of tables of FROM, and the tables of indexes and triggers. Literals and
+	 * comments are skipped, so their words are never taken as tables.
+	 * @param  sql  SQL query.
+	 * @return List with the names of the tables.
+	 */
+	static List<String> getTableNames(final String sql) {
+		final List<String> tokens = getTokens(sql);
+		final List<String> tables = new ArrayList<String>();
+		// The next identifier is a table.
+		boolean expected = false;
+		// Inside the list of tables of a FROM, where commas separate tables.
+		boolean from = false;
+		// Inside an index or a trigger, whose table follows ON.
+		boolean on = false;
+
+		for (int i = 0; i < tokens.size(); ++i) {
+			final String token = tokens.get(i);
+			final char first = token.charAt(0);
+
+			if ('"' == first || Character.isLetterOrDigit(first) || '_' == first) {
+				final String word = ('"' == first) ? null : token.toUpperCase(Locale.ENGLISH);
+
+				if (expected && null != word && TABLE_MODIFIERS.contains(word)) {
+					continue;
+				}
+				if (expected && (null == word || !CLAUSE_KEYWORDS.contains(word))) {
+					// Tables with schema use the name after the dot.
+					int last = i;
+					while (last + 2 < tokens.size() && ".".equals(tokens.get(last + 1))) {
+						last += 2;
+					}
+					final String table = tokens.get(last);
+					tables.add(table.startsWith("\"") ? table.substring(1) : table);
+					expected = false;
+					i = last;
+				} else if (null != word) {
+					expected = false;
+					if (TABLE_KEYWORDS.contains(word)) {
+						expected = true;
+						from = "FROM".equals(word) || ("JOIN".equals(word) && from);
+					} else if ("INDEX".equals(word) || "TRIGGER".equals(word)) {
+						on = true;
+					} else if ("ON".equals(word) && on) {
+						expected = true;
+						on = false;
+					} else if (CLAUSE_KEYWORDS.contains(word) || "GROUP".equals(word) || "ORDER".equals(word)
+								|| "LIMIT".equals(word) || "HAVING".equals(word) || "UNION".equals(word)
+								|| "EXCEPT".equals(word) || "INTERSECT".equals(word) || "USING".equals(word)) {
+						from = false;
+					}
+				}
+			} else if (',' == first) {
+				expected = from;
+			} else {
+				// Subqueries have their own keywords, and a semicolon starts other statement.
+				expected = false;
+				from = false;
+				if (';' == first) {
+					on = false;
+				}
+			}
+		}
+
+		return tables;
+	}
+
+
+	/**
+	 * Splits a SQL query into words, quoted identifiers and symbols. Quoted identifiers start with a double
+	 * quote, and literals, comments and spaces are skipped.
+	 * @param  sql  SQL query.
+	 * @return List with the tokens of the query.
+	 */
+	private static List<String> getTokens(final String sql) {
+		final List<String> tokens = new ArrayList<String>();
+		final int length = sql.length();
+		int i = 0;
+
+		while (i < length) {
+			final char current = sql.charAt(i);
+			final char next = (i + 1 < length) ? sql.charAt(i + 1) : ' ';
+
+			if ('\'' == current) {
+				i = skipQuoted(sql, i, '\'');
+			} else if ('"' == current || '`' == current || '[' == current) {
+				final char end = ('[' == current) ? ']' : current;
+				final int start = i;
+				i = skipQuoted(sql, i, end);
+				tokens.add('"' + sql.substring(start + 1, Math.max(start + 1, i - 1)).replace(
+												new String(new char[] {end, end}), String.valueOf(end)));
+			} else if ('-' == current && '-' == next) {
+				i = sql.indexOf('\n', i);
+				i = (-1 == i) ? length : i + 1;
+			} else if ('/' == current && '*' == next) {
+				i = sql.indexOf("*/", i + 2);
+				i = (-1 == i) ? length : i + 2;
+			} else if (Character.isLetterOrDigit(current) || '_' == current) {
+				final int start = i;
+				while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || '_' == sql.charAt(i)
+										|| '$' == sql.charAt(i))) {
+					++i;
+				}
+				tokens.add(sql.substring(start, i));
+			} else {
+				if (!Character.isWhitespace(current)) {
+					tokens.add(String.valueOf(current));
+				}
+				++i;
+			}
+		}
+
+		return tokens;
+	}
+
+
+	/**
+	 * Skips a quoted literal or identifier. Quotes inside it are escaped by doubling them.
+	 * @param  sql    SQL query.
+	 * @param  start  Position of the opening quote.
+	 * @param  end    Closing quote.
+	 * @return Position after the closing quote, or the length of the query if it's not closed.
+	 */
+	private static int skipQuoted(final String sql, final int start, final char end) {
+		int i = start + 1;
+
+		while (i < sql.length()) {
+			if (end == sql.charAt(i)) {
+				if (']' != end && i + 1 < sql.length() && end == sql.charAt(i + 1)) {
+					++i;
+				} else {
+					return i + 1;
+				}
+			}
+			++i;
+		}
+
+		return sql.length();
+	}
+
+
+	/**
+	 * Appends a where clause to a query, if the condition is not empty.
+	 * @param  objSql     Query where the condition is appended.
+	 * @param  condition  Condition to append.
+	 */
+	private static void appendWhere(final StringBuilder objSql, final String condition) {
+		if (!TextUtils.isEmpty(condition)) {
+			objSql.append(SQL_WHERE);
+			objSql.append(condition);
+		}
+	}
+
+
 	/**
 	 * Gets the create table SQL for this field.
 	 * @return String with the create table SQL.
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+/**
+ * Order of the results of a query by a column.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+public final class Order {
+	/** Name of the column. */
+	private final String column;
+	/** Ascending order, descending order or null to use the order of the index. */
+	private final Boolean ascending;
+
+
+	/**
+	 * Private constructor for avoid external instances.
+	 * @param  column     Name of the column.
+	 * @param  ascending  Ascending order, descending order or null to use the order of the index.
+	 */
+	private Order(final String column, final Boolean ascending) {
+		this.column = column;
+		this.ascending = ascending;
+	}
+
+
+	/**
+	 * Creates an ascending order.
+	 * @param  column  Name of the column.
+	 * @return Order created.
+	 */
+	public static Order asc(final String column) {
+		return new Order(column, Boolean.TRUE);
+	}
+
+
+	/**
+	 * Creates a descending order.
+	 * @param  column  Name of the column.
+	 * @return Order created.
+	 */
+	public static Order desc(final String column) {
+		return new Order(column, Boolean.FALSE);
+	}
+
+
+	/**
+	 * Creates an order with the direction of the column tag ascOrder, so it's the same order of the index.
+	 * @param  column  Name of the column.
+	 * @return Order created.
+	 */
+	public static Order by(final String column) {
+		return new Order(column, null);
+	}
+
+
+	/**
+	 * Gets the name of the column.
+	 * @return Name of the column.
+	 */
+	public String getColumn() {
+		return column;
+	}
+
+
+	/**
+	 * Gets if the order is ascending for a field.
+	 * @param  field  Field of the column.
+	 * @return Boolean value that is true when order is ascending.
+	 */
+	boolean isAscending(final Field field) {
+		if (null == ascending) {
+			return field.isAscOrder();
+		}
+
+		return ascending;
+	}
+
+
+	/**
+	 * Gets a string with the content of the order.
+	 * @return String with the content of the order.
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder objBuilder = new StringBuilder(column);
+
+		if (null == ascending) {
+			objBuilder.append(" (index)");
+		} else if (ascending) {
+			objBuilder.append(" ASC");
+		} else {
+			objBuilder.append(" DESC");
+		}
+
+		return objBuilder.toString();
+	}
+}
@@ -17,10 +17,11 @@ package es.jafs.jaiberdroid;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 
 import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
 
 /**
  * Class that implements an SQLite query.
@@ -60,6 +61,14 @@ public final class Query {
 	protected Type type;
 	/** Object with data of entity. */
 	protected Object object;
+	/** Order by clause of the query. */
+	protected String orderBy;
+	/** Maximum number of rows returned. With 0 or less, there is no maximum. */
+	protected int limit;
+	/** Number of rows skipped. */
+	protected int offset;
+	/** Conflict algorithm of inserts, one of the constants CONFLICT_ of SQLiteDatabase. */
+	protected int conflict = SQLiteDatabase.CONFLICT_NONE;
 
 
 	/**
@@ -109,17 +118,80 @@ public final class Query {
 	}
 
 
+	/**
+	 * Creates an insert query that replaces the rows with the same id or the same value in a unique column. If
+	 * the object has no id, a new one is generated.
+	 * @param  object  Object with data to insert.
+	 * @return Query   Query generated.
+	 * @throws JaiberdroidException 
+	 */
+	public static Query createUpsert(final Object object) throws JaiberdroidException {
+		return createInsert(object, SQLiteDatabase.CONFLICT_REPLACE);
+	}
+
+
+	/**
+	 * Creates an insert query that does nothing if there is a row with the same id or the same value in a
+	 * unique column. If the object has no id, a new one is generated.
+	 * @param  object  Object with data to insert.
+	 * @return Query   Query generated.
+	 * @throws JaiberdroidException 
+	 */
+	public static Query createInsertIfAbsent(final Object object) throws JaiberdroidException {
+		return createInsert(object, SQLiteDatabase.CONFLICT_IGNORE);
+	}
+
+
+	/**
+	 * Creates an insert query with a conflict clause, that inserts also the id.
+	 * @param  object    Object with data to insert.
+	 * @param  conflict  Conflict algorithm, one of the constants CONFLICT_ of SQLiteDatabase.
+	 * @return Query   Query generated.
+	 * @throws JaiberdroidException 
+	 */
+	private static Query createInsert(final Object object, final int conflict) throws JaiberdroidException {
+		final Query query = new Query(Type.INSERT, object);
+		final ContentValues values = getValues(query, true, (List<String>) null);
+
+		putId(values);
+		query.setTransactional(true);
+		query.setConflict(conflict);
+		query.setValues(values);
+
+		return query;
+	}
+
+
+	/**
+	 * Sets the id of values to insert to null when it's 0, so database generates a new one.
+	 * @param  values  Values to insert, with the id.
+	 */
+	static void putId(final ContentValues values) {
+		final Long id = values.getAsLong(JaiberdroidSql._ID);
+
+		if (null == id || 0 == id) {
+			values.putNull(JaiberdroidSql._ID);
+		}
+	}
+
+
 	/**
 	 * Creates an update query.
 	 * @param  object  Object with data to update.
 	 * @return Query   Query generated.
 	 * @throws JaiberdroidException 
 	 */
+	@SuppressWarnings("unchecked")
 	public static Query createUpdate(final Object object) throws JaiberdroidException {
 		final Query query = new Query(Type.UPDATE, object);
 
-		query.addArg(JaiberdroidReflection.executeGetMethod(JaiberdroidReflection.GET_ID, object));
-		query.setCondition(JaiberdroidSql._ID + " = ?");
+		if (null != query.getEntity().getMapper()) {
+			query.addArg(Long.toString(query.getEntity().getMapper().getId(object)));
+		} else {
+			query.addArg(String.valueOf(JaiberdroidReflection.executeGetMethod(
+												query.getEntity().getFields().getKey(), object)));
+		}
+		query.setCondition(JaiberdroidSql.KEY_CONDITION);
 		query.setTransactional(true);
 		query.setValues(getValues(query, false, (List<String>) null));
 
@@ -135,12 +207,12 @@ public final class Query {
 	 * @throws JaiberdroidException 
 	 */
 	@SuppressWarnings("rawtypes")
-	public static Query createDelete(final Class type, final int id) throws JaiberdroidException {
+	public static Query createDelete(final Class type, final long id) throws JaiberdroidException {
 		final Query query = new Query(Type.DELETE, type);
 
 		if (-1 != id) {
 			query.addArg(id);
-			query.setCondition(JaiberdroidSql._ID + " = ?");
+			query.setCondition(JaiberdroidSql.KEY_CONDITION);
 		}
 		query.setTransactional(true);
 
@@ -186,22 +258,50 @@ public final class Query {
 	 * @return ContentValues object with generated data.
 	 * @throws JaiberdroidException 
 	 */
-	@SuppressWarnings("deprecation")
+	@SuppressWarnings("unchecked")
 	protected static ContentValues getValues(final Query query, final boolean id, final List<String> filter) throws JaiberdroidException {
 		final ContentValues values = new ContentValues();
-		final Object object = query.getObject();
-		String name;
+
+		putValues(query.getEntity(), query.getObject(), id, filter, values);
+
+		return values;
+	}
+
+
+	/**
+	 * Puts the values of an object into a content values object.
+	 * @param  entity  Entity of the object.
+	 * @param  object  Object with the data.
+	 * @param  id      Boolean value that indicated if content values stores also the id.
+	 * @param  filter  List of strings that contains the names of fields that must be ignored.
+	 * @param  values  Content values where the data is stored.
+	 * @throws JaiberdroidException 
+	 */
+	@SuppressWarnings("unchecked")
+	static void putValues(final Entity entity, final Object object, final boolean id, final List<String> filter,
+						final ContentValues values) throws JaiberdroidException {
 		Object data;
 
+		// Entities with generated mapper are binded without reflection.
+		if (null != entity.getMapper()) {
+			entity.getMapper().bind(object, values, id);
+			if (null != filter) {
+				for (final String name : filter) {
+					values.remove(name);
+				}
+			}
+
+			return;
+		}
+
 		try {
 			// Get al the fields for entity.
-			for (final Field field : query.getEntity().getFields().getFields().values()) {
+			for (final Field field : entity.getFields().getFields().values()) {
 				// We can control if the field is ID or is in filter.
 				if ((id || !JaiberdroidSql._ID.equals(field.getName()))
 						&& (null == filter || !filter.contains(field.getName()))) {
 					// Executes the method to obtain the value.
-					name = JaiberdroidReflection.getMethodGet(field.getName(), field.getType());
-					data = JaiberdroidReflection.executeGetMethod(name, object);
+					data = JaiberdroidReflection.executeGetMethod(field, object);
 
 					// Checks if the value is ok.
 					if (null == data) {
@@ -209,13 +309,10 @@ public final class Query {
 							values.putNull(field.getName());
 						} else {
 							throw new JaiberdroidException("Field " + field.getName() + " in table "
-														+ query.getEntity().getTableName()
-														+ " can't be null");
+														+ entity.getTableName() + " can't be null");
 						}
-					} else if (FieldTypes.DATE.equals(field.getType())) {
-						values.put(field.getName(), Long.toString(Date.parse((String) data) / 1000));
 					} else {
-						values.put(field.getName(), data.toString());
+						field.getAdapter().put(values, field.getName(), data);
 					}
 				}
 			}
@@ -224,8 +321,6 @@ public final class Query {
 		} catch (IllegalArgumentException e) {
 			throw new JaiberdroidException(e.getMessage());
 		}
-
-		return values;
 	}
 
 
@@ -265,6 +360,85 @@ public final class Query {
 	}
 
 
+	/**
+	 * Sets the order of the results. In debug mode, a warning is written when the order is not backed by an
+	 * index, because rows must be sorted in a temporary B-tree.
+	 * @param  orders  Orders of the results, by priority. Without orders, results are not ordered.
+	 * @throws JaiberdroidException When a column is not in the entity.
+	 */
+	public final void setOrder(final Order... orders) throws JaiberdroidException {
+		orderBy = JaiberdroidSql.getOrderSql(entity, orders);
+
+		if (null != orderBy && JaiberdroidInstance.isDebug() && !JaiberdroidSql.isIndexedOrder(entity, orders)) {
+			Log.w(JaiberdroidInstance.LOG_TAG, "Order " + orderBy + " over " + entity.getTableName()
+											   + " is not backed by an index");
+		}
+	}
+
+
+	/**
+	 * Gets the order by clause of the query.
+	 * @return String with the order by clause, without the ORDER BY command. Null if there is no order.
+	 */
+	public final String getOrderBy() {
+		return orderBy;
+	}
+
+
+	/**
+	 * Gets the conflict algorithm of inserts.
+	 * @return One of the constants CONFLICT_ of SQLiteDatabase.
+	 */
+	public final int getConflict() {
+		return conflict;
+	}
+
+
+	/**
+	 * Sets the conflict algorithm of inserts.
+	 * @param  conflict  One of the constants CONFLICT_ of SQLiteDatabase.
+	 */
+	public final void setConflict(final int conflict) {
+		this.conflict = conflict;
+	}
+
+
+	/**
+	 * Gets the maximum number of rows returned.
+	 * @return Maximum number of rows. With 0 or less, there is no maximum.
+	 */
+	public final int getLimit() {
+		return limit;
+	}
+
+
+	/**
+	 * Sets the maximum number of rows returned.
+	 * @param  limit  Maximum number of rows. With 0 or less, there is no maximum.
+	 */
+	public final void setLimit(final int limit) {
+		this.limit = limit;
+	}
+
+
+	/**
+	 * Gets the number of rows skipped.
+	 * @return Number of rows skipped.
+	 */
+	public final int getOffset() {
+		return offset;
+	}
+
+
+	/**
+	 * Sets the number of rows skipped.
+	 * @param  offset  Number of rows skipped.
+	 */
+	public final void setOffset(final int offset) {
+		this.offset = offset;
+	}
+
+
 	/**
 	 * Gets the values to set.
 	 * @return Object with a set of values to set.
@@ -394,6 +568,15 @@ public final class Query {
 	}
 
 
+	/**
+	 * Adds a long argument.
+	 * @param  argument  Long argument to add.
+	 */
+	public final void addArg(final long argument) {
+		addArg(Long.toString(argument));
+	}
+
+
 	/**
 	 * Adds a float argument.
 	 * @param  argument  Float argument to add.
@@ -491,13 +674,13 @@ public final class Query {
 
 	/**
 	 * Gets the id of current object if exists.
-	 * @return Integer with id of current object. 0 if the object hasn't id.
+	 * @return Long with id of current object. 0 if the object hasn't id.
 	 */
-	public final int getId() {
-		int id = 0;
+	public final long getId() {
+		long id = 0;
 
-		if (null != values && values.containsKey(JaiberdroidSql._ID)) {
-			id = values.getAsInteger(JaiberdroidSql._ID);
+		if (null != values && null != values.getAsLong(JaiberdroidSql._ID)) {
+			id = values.getAsLong(JaiberdroidSql._ID);
 		}
 
 		return id;
@@ -520,6 +703,10 @@ public final class Query {
 		objBuilder.append(values);
 		objBuilder.append("}; args->");
 		objBuilder.append(args);
+		objBuilder.append("; order->");
+		objBuilder.append(orderBy);
+		objBuilder.append("; limit->");
+		objBuilder.append(JaiberdroidSql.getLimitSql(offset, limit));
 		objBuilder.append("; transactional->");
 		objBuilder.append(transactional);
 		objBuilder.append("; type->");
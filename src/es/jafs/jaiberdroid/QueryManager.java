@@ -16,16 +16,25 @@
 package es.jafs.jaiberdroid;
 
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.os.CancellationSignal;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -38,6 +47,48 @@ import android.util.Log;
 final class QueryManager extends SQLiteOpenHelper {
 	/** Log tag for SQL queries. */
 	private static final String SQL_TAG = "sqlop";
+	/** Maximum number of compiled statements stored. */
+	private static final int STATEMENT_CACHE_SIZE = 32;
+
+	/** Cancellation signal of the selects of each thread, used by async queries. */
+	private static final ThreadLocal<Object> CANCELLATION = new ThreadLocal<Object>();
+	/** Start of SQL insert queries. */
+	private static final String SQL_INSERT = "INSERT";
+	/** Start of SQL replace queries. */
+	private static final String SQL_REPLACE = "REPLACE";
+	/** Start of SQL update queries. */
+	private static final String SQL_UPDATE = "UPDATE";
+	/** Start of SQL delete queries. */
+	private static final String SQL_DELETE = "DELETE";
+	/** Prefix of the keys of the cached results of entity selects. */
+	private static final String RESULT_SELECT = "select:";
+	/** Prefix of the keys of the cached first rows of entity selects. */
+	private static final String RESULT_FIRST = "first:";
+	/** Prefix of the keys of the cached results of SQL queries returned as maps. */
+	private static final String RESULT_QUERY = "query:";
+	/** Prefix of the keys of the cached results of SQL queries returned as tables. */
+	private static final String RESULT_TABLE = "table:";
+	/** Prefix of the keys of the cached aggregates. */
+	private static final String RESULT_AGGREGATE = "aggregate:";
+	/** Prefix of the keys of the cached counts. */
+	private static final String RESULT_COUNT = "count:";
+
+	/** Transactions of the user opened by each thread. */
+	private final ThreadLocal<UnitOfWork> transactions = new ThreadLocal<UnitOfWork>();
+	/** Sessions opened by each thread. */
+	private final ThreadLocal<IdentityMap> sessions = new ThreadLocal<IdentityMap>();
+
+	/** Compiled statements used by insert, update, delete and count queries. */
+	private final StatementCache statements = new StatementCache(STATEMENT_CACHE_SIZE);
+
+	/** Cached number of rows of the tables, or null if the cache is not enabled. */
+	private final CountCache counts;
+	/** Indicates if the database uses write-ahead logging. */
+	private final boolean wal;
+	/** Cached results of the selects, or null if the cache is not enabled. */
+	private final ResultCache resultCache;
+	/** Listeners of the changes of the entities. */
+	private final ChangeBus changes = new ChangeBus();
 
 	/** Instance of Entity Manager. */
 	private EntityManager entityManager;
@@ -49,12 +100,26 @@ final class QueryManager extends SQLiteOpenHelper {
 	 * @param  entityManager  Entity manager for persistence.
 	 * @param  version        Database version.
 	 * @param  name           Name of database.
+	 * @param  countCache     Boolean value that indicates if the number of rows of the tables is cached.
+	 * @param  wal            Boolean value that indicates if the database uses write-ahead logging. Only
+	 *                        available since Honeycomb.
+	 * @param  resultRows     Maximum number of rows of the results of selects cached. With 0, results are
+	 *                        not cached.
 	 * @throws JaiberdroidException 
 	 */
 	QueryManager(final Context context, final EntityManager entityManager, final int version,
-				final String name) throws JaiberdroidException {
+				final String name, final boolean countCache, final boolean wal, final int resultRows)
+				throws JaiberdroidException {
 		super(context, name, null, version);
 		this.entityManager = entityManager;
+		this.counts = countCache ? new CountCache() : null;
+		this.resultCache = (resultRows > 0) ? new ResultCache(resultRows) : null;
+		this.wal = wal && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+
+		// Since Jelly Bean, the helper enables it before opening the database.
+		if (this.wal && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			setWriteAheadLoggingEnabled(true);
+		}
 	}
 
 
@@ -64,9 +129,13 @@ final class QueryManager extends SQLiteOpenHelper {
 	 */
 	@Override
 	public void onCreate(final SQLiteDatabase database) {
+		statements.clear();
+		clearCaches();
 		if (!executeUpdates(entityManager.getCreateQueries(), false, database)) {
 			Log.e(JaiberdroidInstance.LOG_TAG, "Problem creating database.");
 		}
+		// New tables have no booleans stored as text.
+		database.execSQL(JaiberdroidSql.CREATE_BOOLEANS_TABLE);
 	}
 
 
@@ -79,6 +148,9 @@ final class QueryManager extends SQLiteOpenHelper {
 	 */
 	@Override
 	public void onUpgrade(final SQLiteDatabase database, final int oldVersion, final int newVersion) {
+		statements.clear();
+		clearCaches();
+
 		// The false value in if executeUpdates call, is because this method creates automatically a
 		// transaction.
 		if (!executeUpdates(entityManager.getDropQueries(), false, database)) {
@@ -88,6 +160,72 @@ final class QueryManager extends SQLiteOpenHelper {
 	}
 
 
+	/**
+	 * Called when the database has been opened. Enables write-ahead logging before Jelly Bean, and converts
+	 * the booleans stored as text by previous versions, only the first time.
+	 * @param  database  The database.
+	 */
+	@Override
+	public void onOpen(final SQLiteDatabase database) {
+		super.onOpen(database);
+
+		if (!database.isReadOnly()) {
+			if (wal && Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+				database.enableWriteAheadLogging();
+			}
+			if (0 == DatabaseUtils.longForQuery(database, JaiberdroidSql.TABLE_EXISTS,
+												new String[] {JaiberdroidSql.BOOLEANS_TABLE})) {
+				convertBooleans(database);
+			}
+		}
+	}
+
+
+	/**
+	 * Converts the booleans stored as the text true or false by previous versions into 1 and 0, so conditions
+	 * over boolean columns find all the rows. Only the rows with text are updated. When all the columns are
+	 * converted, the database is marked so they are not converted again.
+	 * @param  database  Database to convert.
+	 */
+	private void convertBooleans(final SQLiteDatabase database) {
+		boolean converted = true;
+
+		database.beginTransaction();
+		try {
+			for (final Entity entity : entityManager.getEntities()) {
+				for (final Field field : entity.getFields().getFields().values()) {
+					if (ColumnAdapter.BOOLEAN == field.getAdapter()) {
+						try {
+							database.execSQL(JaiberdroidSql.getBooleanConversionSql(entity.getTableName(),
+																					field.getName()));
+						} catch (final SQLException e) {
+							Log.e(JaiberdroidInstance.LOG_TAG, "Converting booleans of " + entity.getTableName()
+																+ ": " + e.getMessage(), e);
+							converted = false;
+						}
+					}
+				}
+			}
+			if (converted) {
+				database.execSQL(JaiberdroidSql.CREATE_BOOLEANS_TABLE);
+			}
+			database.setTransactionSuccessful();
+		} finally {
+			database.endTransaction();
+		}
+	}
+
+
+	/**
+	 * Closes the database and the compiled statements.
+	 */
+	@Override
+	public synchronized void close() {
+		statements.clear();
+		super.close();
+	}
+
+
 	/**
 	 * Executes a query and return its result.
 	 * @param  query  Query to execute.
@@ -109,10 +247,21 @@ final class QueryManager extends SQLiteOpenHelper {
 	 * @return Object with results. A List of Map of Strings, where key is field name and
 	 *         value is content of field in String format.
 	 */
+	@SuppressWarnings("unchecked")
 	Object executeQuery(final String query) {
 		List<Map<String, String>> result = null;
+		final String key = getResultKey(RESULT_QUERY, query, null);
+		final String[] tables = (null != key) ? getTables(query) : null;
+
+		if (null != tables) {
+			final Object cached = resultCache.get(key);
+			if (null != cached) {
+				return copyRows((List<Map<String, String>>) cached);
+			}
+		}
 
 		try {
+			final long[] versions = (null != tables) ? resultCache.getVersions(tables) : null;
 			// TODO analyze the query (can be an update).
 			final SQLiteDatabase database = getWritableDatabase();
 			result = new ArrayList<Map<String,String>>();
@@ -133,6 +282,58 @@ final class QueryManager extends SQLiteOpenHelper {
 				} while (cursor.moveToNext());
 			}
 			cursor.close();
+			// The query is executed when the cursor is read.
+			clearCaches(query);
+
+			if (null != tables) {
+				resultCache.put(key, copyRows(result), result.size(), tables, versions);
+			}
+			changed(query);
+		} catch (final SQLException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "Executing sql: " + e.getMessage(), e);
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Executes a SQL query in database, storing the results by columns.
+	 * @param  sql   String with the SQL query to execute.
+	 * @param  args  Arguments of the query. Can be null.
+	 * @return Table with the results, or null if there is an error.
+	 */
+	ResultTable executeTable(final String sql, final String[] args) {
+		ResultTable result = null;
+		final String key = getResultKey(RESULT_TABLE, sql, null != args ? Arrays.asList(args) : null);
+		final String[] tables = (null != key) ? getTables(sql) : null;
+
+		if (null != tables) {
+			result = (ResultTable) resultCache.get(key);
+			if (null != result) {
+				return result;
+			}
+		}
+
+		try {
+			final long[] versions = (null != tables) ? resultCache.getVersions(tables) : null;
+			final SQLiteDatabase database = getWritableDatabase();
+
+			if (JaiberdroidInstance.isDebug()) {
+				Log.d(SQL_TAG, sql);
+			}
+			final Cursor cursor = database.rawQuery(sql, args);
+			try {
+				result = new ResultTable(cursor);
+			} finally {
+				cursor.close();
+			}
+			clearCaches(sql);
+
+			if (null != tables) {
+				resultCache.put(key, result, result.getRowCount(), tables, versions);
+			}
+			changed(sql);
 		} catch (final SQLException e) {
 			Log.e(JaiberdroidInstance.LOG_TAG, "Executing sql: " + e.getMessage(), e);
 		}
@@ -148,55 +349,89 @@ final class QueryManager extends SQLiteOpenHelper {
 	 * @throws JaiberdroidException When there is an error on query.
 	 */
 	private long executeUpdate(final Query query) throws JaiberdroidException {
+		// Inside a transaction of the user, the query is committed with it.
+		final boolean transactional = query.isTransactional() && null == transactions.get();
 		long rows = -1;
+		long id = -1;
 
+		// The counts read from database while the rows are written are not stored.
+		if (null != counts) {
+			counts.beginWrite(query.getEntity().getTableName());
+		}
 		try {
-			final SQLiteDatabase database = getWritableDatabase();
+			try {
+				final SQLiteDatabase database = getWritableDatabase();
 
-			if (query.isTransactional()) {
-				database.beginTransaction();
-			}
+				if (transactional) {
+					beginTransaction(database);
+				}
 
-			debugQuery(query);
+				try {
+					debugQuery(query);
 
-			switch (query.getType()) {
-				// Inserts a value into the database.
-				case INSERT:
-					// Returns the row id of inserted data.
-					rows = (int) database.insert(query.getEntity().getTableName(), null, query.getValues());
-					if (-1 != rows) {
-						JaiberdroidReflection.executeSetMethod(JaiberdroidReflection.SET_ID, query.getObject(),
-															int.class, (int) rows);
-						rows = 1; // Affected 1 row.
-					}
-					break;
+					switch (query.getType()) {
+						// Inserts a value into the database.
+						case INSERT:
+							// Returns the row id of inserted data.
+							rows = insert(database, query.getEntity(),
+										null != query.getValues() ? query.getValues() : new ContentValues(),
+										query.getConflict());
+							if (-1 != rows) {
+								id = rows;
+								setId(query.getEntity(), query.getObject(), id);
+								rows = 1; // Affected 1 row.
+							}
+							break;
 
-				// Updates existing values into database.
-				case UPDATE:
-					rows = database.update(query.getEntity().getTableName(), query.getValues(),
-											query.getCondition(), query.getArgsArray());
-					break;
+						// Updates existing values into database.
+						case UPDATE:
+							rows = update(database, query);
+							id = getKeyArg(query);
+							break;
 
-				// Delete values of database.
-				case DELETE:
-					rows = database.delete(query.getEntity().getTableName(), query.getCondition(),
-										query.getArgsArray());
-					break;
+						// Delete values of database.
+						case DELETE:
+							rows = delete(database, query);
+							id = getKeyArg(query);
+							break;
 
-				default:
-					Log.e(JaiberdroidInstance.LOG_TAG, "Only Insert, Update, Delete are supported");
-			}
+						default:
+							Log.e(JaiberdroidInstance.LOG_TAG, "Only Insert, Update, Delete are supported");
+					}
 
-			if (database.inTransaction()) {
-				if (rows != -1) {
-					database.setTransactionSuccessful();
+					if (transactional && rows != -1) {
+						database.setTransactionSuccessful();
+					}
+				} finally {
+					if (transactional) {
+						database.endTransaction();
+					}
 				}
+			} catch (final SQLException e) {
+				Log.e(JaiberdroidInstance.LOG_TAG, "When executing update: " + e.getMessage(), e);
+				countRows(query.getEntity().getTableName(), null);
+				throw new JaiberdroidException("Executing SQL" + e.getMessage());
+			}
 
-				database.endTransaction();
+			if (rows > 0) {
+				// Caches are updated after the commit, so other threads can't read the rows again before it.
+				updateCaches(query, id);
+				if (SQLiteDatabase.CONFLICT_REPLACE == query.getConflict()) {
+					// Replaced rows are deleted before the insert.
+					countRows(query.getEntity().getTableName(), null);
+				} else if (Query.Type.INSERT.equals(query.getType())) {
+					countRows(query.getEntity().getTableName(), rows);
+				} else if (Query.Type.DELETE.equals(query.getType())) {
+					countRows(query.getEntity().getTableName(), -rows);
+				} else {
+					countRows(query.getEntity().getTableName(), 0L);
+				}
+				changed(query.getEntity(), query.getType(), id);
+			}
+		} finally {
+			if (null != counts) {
+				counts.endWrite(query.getEntity().getTableName());
 			}
-		} catch (final SQLException e) {
-			Log.e(JaiberdroidInstance.LOG_TAG, "When executing update: " + e.getMessage(), e);
-			throw new JaiberdroidException("Executing SQL" + e.getMessage());
 		}
 
 		return rows;
@@ -204,199 +439,1282 @@ final class QueryManager extends SQLiteOpenHelper {
 
 
 	/**
-	 * Executes a query that returns data of an entity.
-	 * @param  query  Query to execute.
-	 * @return List of results or null is there an error.
-	 * @throws JaiberdroidException When there is an error on query.
+	 * Inserts a row with a cached statement.
+	 * @param  database  Database where the row is inserted.
+	 * @param  entity    Entity of the row.
+	 * @param  values    Values of the row.
+	 * @param  conflict  Conflict algorithm, one of the constants CONFLICT_ of SQLiteDatabase.
+	 * @return Row id of inserted data, or -1 if there is an error or the row is ignored.
 	 */
-	private List<Object> executeEntity(final Query query) throws JaiberdroidException {
-		List<Object> results = null;
-
-		// Checks if query is SELECT type.
-		if (Query.Type.SELECT.equals(query.getType())) {
-			try {
-				final SQLiteDatabase database = getWritableDatabase();
-
-				final Cursor cursor = database.query(query.getEntity().getTableName(), query.getFields(),
-													query.getCondition(), query.getArgsArray(), null, null,
-													null);
+	private long insert(final SQLiteDatabase database, final Entity entity, final ContentValues values,
+						final int conflict) {
+		final String[] columns = getColumns(entity, values);
+		final Object[] data = new Object[columns.length];
+		long id = -1;
 
-				if (cursor.moveToFirst()) {
-					results = new ArrayList<Object>();
+		for (int i = 0; i < columns.length; ++i) {
+			data[i] = values.get(columns[i]);
+		}
 
-					do {
-						results.add(getObject(cursor, query.getEntity()));
-					} while (cursor.moveToNext());
+		final SQLiteStatement statement = statements.acquire(database, JaiberdroidSql.getInsertSql(
+															entity.getTableName(), columns, conflict));
+		try {
+			synchronized (statement) {
+				StatementCache.bind(statement, data, null);
+				try {
+					id = statement.executeInsert();
+				} catch (final SQLException e) {
+					// Same behaviour of SQLiteDatabase.insert(), errors returns -1.
+					Log.e(JaiberdroidInstance.LOG_TAG, "Error inserting " + values + ": " + e.getMessage(), e);
 				}
-				cursor.close();
-			} catch (final SQLException e) {
-				Log.e(JaiberdroidInstance.LOG_TAG, "When executing a query: " + e.getMessage(), e);
 			}
+		} finally {
+			statements.release(statement);
 		}
 
-		return results;
+		return id;
 	}
 
 
 	/**
-	 * Prints a debug trace for a query.
-	 * @param  query  Query to print in debug.
+	 * Updates rows with a cached statement.
+	 * @param  database  Database where the rows are updated.
+	 * @param  query     Query to execute.
+	 * @return Number of rows affected.
+	 * @throws JaiberdroidException When query has no values.
 	 */
-	private static void debugQuery(final Query query) {
-		if (JaiberdroidInstance.isDebug() && null != query) {
-			final StringBuilder message = new StringBuilder();
+	private long update(final SQLiteDatabase database, final Query query) throws JaiberdroidException {
+		final ContentValues values = query.getValues();
 
-			message.append(query.getType().name());
-			message.append(" over ");
-			message.append(query.getEntity().getTableName());
-			message.append(" |");
-			if (null != query.getValues() && query.getValues().size() > 0) {
-				message.append(" values [");
-				message.append(query.getValues());
-				message.append(']');
-			}
-			if (!TextUtils.isEmpty(query.getCondition())) {
-				message.append(" condition [");
-				message.append(query.getCondition());
-				message.append(']');
+		if (null == values || 0 == values.size()) {
+			throw new JaiberdroidException("Empty values in update of " + query.getEntity().getTableName());
+		}
+
+		// Statements without cursor that returns rows affected are only available since Honeycomb.
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+			return database.update(query.getEntity().getTableName(), values, query.getCondition(),
+									query.getArgsArray());
+		}
+
+		final String[] columns = new String[values.size()];
+		final Object[] data = new Object[values.size()];
+		int i = 0;
+		for (final Map.Entry<String, Object> value : values.valueSet()) {
+			columns[i] = value.getKey();
+			data[i] = value.getValue();
+			++i;
+		}
+
+		final SQLiteStatement statement = statements.acquire(database, JaiberdroidSql.getUpdateSql(
+														query.getEntity().getTableName(), columns,
+														query.getCondition()));
+		try {
+			synchronized (statement) {
+				StatementCache.bind(statement, data, query.getArgs());
+				return statement.executeUpdateDelete();
 			}
-			if (null != query.getArgs()) {
-				message.append(" variables [ ");
-				for (int i = 0; i < query.getArgs().size(); ++i) {
-					message.append(query.getArgsArray());
-					message.append(' ');
-				}
-				message.append(']');
+		} finally {
+			statements.release(statement);
+		}
+	}
+
+
+	/**
+	 * Deletes rows with a cached statement.
+	 * @param  database  Database where the rows are deleted.
+	 * @param  query     Query to execute.
+	 * @return Number of rows affected.
+	 */
+	private long delete(final SQLiteDatabase database, final Query query) {
+		// Statements without cursor that returns rows affected are only available since Honeycomb.
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+			return database.delete(query.getEntity().getTableName(), query.getCondition(), query.getArgsArray());
+		}
+
+		final SQLiteStatement statement = statements.acquire(database, JaiberdroidSql.getDeleteSql(
+														query.getEntity().getTableName(), query.getCondition()));
+		try {
+			synchronized (statement) {
+				StatementCache.bind(statement, null, query.getArgs());
+				return statement.executeUpdateDelete();
 			}
+		} finally {
+			statements.release(statement);
+		}
+	}
 
-			Log.d(SQL_TAG, message.toString());
+
+	/**
+	 * Gets the columns of values to insert. When values are all the columns of the entity, with or without the
+	 * id, returns them in the order of the entity, so all the inserts of an entity use the same statement.
+	 * @param  entity  Entity of the row.
+	 * @param  values  Values of the row.
+	 * @return Array with the names of the columns.
+	 */
+	private static String[] getColumns(final Entity entity, final ContentValues values) {
+		String[] columns = values.containsKey(JaiberdroidSql._ID) ? entity.getAllColumns()
+																   : entity.getInsertColumns();
+		boolean same = (values.size() == columns.length);
+
+		for (int i = 0; same && i < columns.length; ++i) {
+			same = values.containsKey(columns[i]);
 		}
+
+		if (!same) {
+			columns = new String[values.size()];
+			int i = 0;
+			for (final Map.Entry<String, Object> value : values.valueSet()) {
+				columns[i] = value.getKey();
+				++i;
+			}
+		}
+
+		return columns;
 	}
 
 
 	/**
-	 * Execute a list of queries in database.
-	 * @param  database     Database into execute queries.
-	 * @param  queries      List of String with queries to execute.
-	 * @param  transaction  Boolean value that sets if the queries are executed in transacction. 
+	 * Inserts a set of objects of an entity. All the rows are inserted with the same compiled statement, and
+	 * the ids generated are set in the objects. With a conflict algorithm, the ids of the objects are also
+	 * inserted, and a new one is generated for the objects without id.
+	 * @param  entity          Entity of the objects.
+	 * @param  objects         Iterator over the objects to insert.
+	 * @param  conflict        Conflict algorithm, one of the constants CONFLICT_ of SQLiteDatabase.
+	 * @param  commitInterval  Number of rows inserted in each transaction. With 0 or less, all the rows are
+	 *                         inserted in only one transaction. Inside a transaction of the user, all the rows
+	 *                         are committed with it.
+	 * @return Array with the number of rows inserted in each committed transaction.
+	 * @throws JaiberdroidException When there is an error on query. Transactions committed before the error
+	 *         are kept.
 	 */
-	private boolean executeUpdates(final List<String> queries, final boolean transaction,
-									final SQLiteDatabase database) {
-		boolean ok = false;
+	long[] executeInsertAll(final Entity entity, final Iterator<?> objects, final int conflict,
+							final int commitInterval) throws JaiberdroidException {
+		final boolean ids = SQLiteDatabase.CONFLICT_NONE != conflict;
+		final List<Long> batches = new ArrayList<Long>();
+		final String[] columns = ids ? entity.getAllColumns() : entity.getInsertColumns();
+		final Object[] data = new Object[columns.length];
+		final ContentValues values = new ContentValues();
+		final boolean transactional = null == transactions.get();
+		final IdentityMap session = sessions.get();
+		// Ids of the current batch stored in the session, removed from it when the batch is rolled back.
+		final List<Long> sessionIds = (null != session && transactional) ? new ArrayList<Long>() : null;
+		// Inside a transaction of the user, the changes are published with it.
+		final ChangeSet changeSet = !changes.hasListeners(entity.getTableName()) ? null
+									: transactional ? new ChangeSet() : transactions.get().getChanges();
+		Object object;
+		long rows = 0;
+		long total = 0;
+		boolean finished = false;
+		long id;
 
-		if (null != queries) {
+		// The counts read from database while the rows are written are not stored.
+		if (null != counts) {
+			counts.beginWrite(entity.getTableName());
+		}
+		try {
+			final SQLiteDatabase database = getWritableDatabase();
+			final String sql = JaiberdroidSql.getInsertSql(entity.getTableName(), columns, conflict);
+
+			if (JaiberdroidInstance.isDebug()) {
+				Log.d(SQL_TAG, sql);
+			}
+			if (transactional) {
+				beginTransaction(database);
+			}
 			try {
-				if (transaction) {
-					if (JaiberdroidInstance.isDebug()) {
-						Log.d(SQL_TAG, "BEGIN");
-					}
-					database.beginTransaction();
-				}
-	
+				// The statement is not shared, so other threads don't wait for it while the objects are read.
+				final SQLiteStatement statement = database.compileStatement(sql);
 				try {
-					for (String query : queries) {
-						if (JaiberdroidInstance.isDebug()) {
-							Log.d(SQL_TAG, query);
+					while (objects.hasNext()) {
+						object = objects.next();
+
+						values.clear();
+						Query.putValues(entity, object, ids, null, values);
+						if (ids) {
+							Query.putId(values);
 						}
-						database.execSQL(query);
-					}
-	
-					if (transaction && database.inTransaction()) {
-						if (JaiberdroidInstance.isDebug()) {
-							Log.d(SQL_TAG, "COMMIT");
+						for (int i = 0; i < columns.length; ++i) {
+							data[i] = values.get(columns[i]);
 						}
+						StatementCache.bind(statement, data, null);
+
+						id = statement.executeInsert();
+						if (-1 != id) {
+							setId(entity, object, id);
+							if (null != session) {
+								session.put(entity.getReferenced(), id, object);
+								if (null != sessionIds) {
+									sessionIds.add(id);
+								}
+							}
+							if (null != changeSet) {
+								changeSet.add(entity, Query.Type.INSERT, id);
+							}
+							++rows;
+							++total;
+						} else if (SQLiteDatabase.CONFLICT_IGNORE != conflict) {
+							throw new JaiberdroidException("Row not inserted in " + entity.getTableName());
+						}
+
+						// Commits the current batch and starts the next one.
+						if (transactional && commitInterval > 0 && rows == commitInterval && objects.hasNext()) {
+							database.setTransactionSuccessful();
+							database.endTransaction();
+							batches.add(rows);
+							rows = 0;
+							if (null != sessionIds) {
+								sessionIds.clear();
+							}
+							beginTransaction(database);
+						}
+					}
+
+					if (transactional) {
 						database.setTransactionSuccessful();
 					}
-				} catch (final SQLException e) {
-					Log.e(JaiberdroidInstance.LOG_TAG, "When executing SQL: " + e.getMessage(), e);
-				}
-	
-				if (transaction && database.inTransaction()) {
-					if (JaiberdroidInstance.isDebug()) {
-						Log.d(SQL_TAG, "END");
+					if (rows > 0) {
+						batches.add(rows);
 					}
+				} finally {
+					statement.close();
+				}
+			} finally {
+				if (transactional) {
 					database.endTransaction();
 				}
-
-				ok = true;
-			} catch (final SQLException e) {
-				Log.e(JaiberdroidInstance.LOG_TAG, "Problem in update: " + e.getMessage(), e);
+			}
+			finished = true;
+		} catch (final SQLException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "When executing insert: " + e.getMessage(), e);
+			throw new JaiberdroidException("Executing SQL: " + e.getMessage());
+		} finally {
+			if (!finished && null != sessionIds) {
+				for (final Long rolledBack : sessionIds) {
+					session.remove(entity.getReferenced(), rolledBack);
+				}
+			}
+			// After an error, committed batches are unknown.
+			countRows(entity.getTableName(), finished && SQLiteDatabase.CONFLICT_REPLACE != conflict
+											 ? Long.valueOf(total) : null);
+			if (null != counts) {
+				counts.endWrite(entity.getTableName());
+			}
+			if (null != entity.getCache()) {
+				if (SQLiteDatabase.CONFLICT_REPLACE == conflict) {
+					entity.getCache().clear();
+				} else {
+					entity.getCache().inserted();
+				}
+			}
+			if (null != changeSet && transactional && total > 0) {
+				if (finished) {
+					changes.publish(changeSet);
+				} else {
+					// After an error, committed batches are unknown.
+					changed(entity, Query.Type.INSERT, -1);
+				}
 			}
 		}
 
-		return ok;
+		if (JaiberdroidInstance.isDebug()) {
+			Log.d(SQL_TAG, "INSERT over " + entity.getTableName() + " | batches " + batches);
+		}
+
+		final long[] result = new long[batches.size()];
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = batches.get(i);
+		}
+
+		return result;
 	}
 
 
 	/**
 	 * Executes a query that returns data of an entity.
-	 * @param  entity  Entity with table to count.
+	 * @param  query  Query to execute.
 	 * @return List of results or null is there an error.
-	 * @throws JaiberdroidException 
+	 * @throws JaiberdroidException When there is an error on query.
 	 */
-	long executeCountQuery(final Entity entity) throws JaiberdroidException {
-		long count = 0;
-
-		try {
-			final SQLiteDatabase database = getWritableDatabase();
+	private List<Object> executeEntity(final Query query) throws JaiberdroidException {
+		List<Object> results = null;
 
-			Cursor mCount= database.rawQuery(JaiberdroidSql.getCountSql(entity.getTableName()), null);
-			if (mCount.moveToFirst());
-			count= mCount.getLong(0);
-			mCount.close();
-		} catch (final SQLException e) {
-			Log.e(JaiberdroidInstance.LOG_TAG, "When executing a query: " + e.getMessage(), e);
+		// Checks if query is SELECT type.
+		if (Query.Type.SELECT.equals(query.getType())) {
+			results = read(query, false);
 		}
 
-		return count;
+		return results;
 	}
 
 
 	/**
-	 * Extracts object data from a cursor and an entity.
-	 * @param  cursor  Cursor with results of a query.
-	 * @param  entity  Entity to extract.
-	 * @return Object of type of entity class.
-	 * @throws JaiberdroidException When a problem occurs.
+	 * Executes a query that returns the first row of an entity, reading only that row.
+	 * @param  query  Query to execute. Must be of type SELECT, and should have limit 1.
+	 * @return Object with data of the first row, or null if there are no rows or there is an error.
+	 * @throws JaiberdroidException When there is an error on query.
 	 */
-	@SuppressWarnings("rawtypes")
-	private Object getObject(final Cursor cursor, final Entity entity) throws JaiberdroidException {
+	Object executeFirst(final Query query) throws JaiberdroidException {
 		Object result = null;
 
-		if (null != cursor && cursor.getCount() > 0) {
-			try {
-				result = entity.getReferenced().newInstance();
-				Class type;
-				String name;
-				int pos;
-
-				for (String column : cursor.getColumnNames()) {
-					type = entity.getFields().getFieldClass(column);
-					name = JaiberdroidReflection.getMethodSet(column);
-					pos = cursor.getColumnIndex(column);
-
-					if (int.class.equals(type) || Integer.class.equals(type)) {
-						JaiberdroidReflection.executeSetMethod(name, result, type, cursor.getInt(pos));
-					} else if (long.class.equals(type) || Long.class.equals(type) || Date.class.equals(type)) {
-						JaiberdroidReflection.executeSetMethod(name, result, type, cursor.getLong(pos));
-					} else if (String.class.equals(type)) {
-						JaiberdroidReflection.executeSetMethod(name, result, type, cursor.getString(pos));
-					} else if (float.class.equals(type) || Float.class.equals(type)) {
-						JaiberdroidReflection.executeSetMethod(name, result, type, cursor.getFloat(pos));
-					} else if (double.class.equals(type) || Double.class.equals(type)) {
-						JaiberdroidReflection.executeSetMethod(name, result, type, cursor.getDouble(pos));
-					} else if (boolean.class.equals(type) || Boolean.class.equals(type)) {
-						JaiberdroidReflection.executeSetMethod(name, result, type,
-															"true".equals(cursor.getString(pos)));
-					}
-				}
-			} catch (final IllegalAccessException e) {
-				e.printStackTrace();
-			} catch (final InstantiationException e) {
-				e.printStackTrace();
+		if (Query.Type.SELECT.equals(query.getType())) {
+			final List<Object> results = read(query, true);
+			if (null != results && !results.isEmpty()) {
+				result = results.get(0);
 			}
 		}
 
 		return result;
 	}
+
+
+	/**
+	 * Reads the rows of a select, from the caches or from database. The rows read from database are stored
+	 * in the cache of the entity and in the cache of results.
+	 * @param  query  Query to execute. Must be of type SELECT.
+	 * @param  first  Boolean value that is true to read only the first row.
+	 * @return List of results, or null if there are no rows or there is an error.
+	 * @throws JaiberdroidException When there is an error on query.
+	 */
+	private List<Object> read(final Query query, final boolean first) throws JaiberdroidException {
+		List<Object> results = readCache(query);
+		if (null != results) {
+			return results;
+		}
+
+		final String key = getResultKey(first ? RESULT_FIRST : RESULT_SELECT, getSelectKey(query), query.getArgs());
+		if (null != key) {
+			final EntityCache.Row[] cached = (EntityCache.Row[]) resultCache.get(key);
+			if (null != cached) {
+				return toObjects(query.getEntity(), cached);
+			}
+		}
+
+		try {
+			final EntityCache cache = getCache(query.getEntity());
+			final long version = (null != cache) ? cache.getVersion() : 0;
+			final String[] tables = {query.getEntity().getTableName()};
+			final long[] versions = (null != key) ? resultCache.getVersions(tables) : null;
+			final Cursor cursor = select(query);
+
+			try {
+				final long[] ids = (null != cache && !first && isSelectAll(query)) ? new long[cursor.getCount()]
+																				   : null;
+				final List<EntityCache.Row> rows = (null != key) ? new ArrayList<EntityCache.Row>() : null;
+
+				if (cursor.moveToFirst()) {
+					final RowBinder binder = new RowBinder(query.getEntity(), cursor, sessions.get());
+					final String[] columns = cursor.getColumnNames();
+					final int idPosition = cursor.getColumnIndex(JaiberdroidSql._ID);
+					results = new ArrayList<Object>();
+
+					do {
+						results.add(binder.read(cursor));
+						if (null != cache || null != rows) {
+							final EntityCache.Row row = EntityCache.Row.read(columns, cursor);
+							if (null != cache) {
+								cache.put(cursor.getLong(idPosition), row, version);
+							}
+							if (null != ids) {
+								ids[cursor.getPosition()] = cursor.getLong(idPosition);
+							}
+							if (null != rows) {
+								rows.add(row);
+							}
+						}
+					} while (!first && cursor.moveToNext());
+				}
+
+				if (null != ids) {
+					cache.putAll(ids, version);
+				}
+				if (null != rows) {
+					resultCache.put(key, rows.toArray(new EntityCache.Row[rows.size()]), rows.size(), tables,
+									versions);
+				}
+			} finally {
+				cursor.close();
+			}
+		} catch (final SQLException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "When executing a query: " + e.getMessage(), e);
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Reads the results of a select from the cache of its entity. Only the selects of a row by its id and the
+	 * selects of all the rows without order are read from the cache.
+	 * @param  query  Query to execute.
+	 * @return List of results, or null if the results are not in cache.
+	 * @throws JaiberdroidException When there is an error creating the objects.
+	 */
+	private List<Object> readCache(final Query query) throws JaiberdroidException {
+		final EntityCache cache = query.getEntity().getCache();
+		EntityCache.Row[] rows = null;
+
+		if (null != cache && query.getOffset() <= 0) {
+			final long id = getKeyArg(query);
+			if (-1 != id) {
+				final EntityCache.Row row = cache.get(id);
+				if (null != row) {
+					rows = new EntityCache.Row[] {row};
+				}
+			} else if (isSelectAll(query)) {
+				rows = cache.getAll();
+			}
+		}
+
+		return (null != rows) ? toObjects(query.getEntity(), rows) : null;
+	}
+
+
+	/**
+	 * Creates the objects of some cached rows.
+	 * @param  entity  Entity of the rows.
+	 * @param  rows    Rows read from a cache.
+	 * @return List of objects. Empty if there are no rows.
+	 * @throws JaiberdroidException When there is an error creating the objects.
+	 */
+	private List<Object> toObjects(final Entity entity, final EntityCache.Row[] rows) throws JaiberdroidException {
+		final List<Object> results = new ArrayList<Object>(rows.length);
+
+		if (rows.length > 0) {
+			final Cursor cursor = EntityCache.toCursor(rows);
+			try {
+				final RowBinder binder = new RowBinder(entity, cursor, sessions.get());
+				while (cursor.moveToNext()) {
+					results.add(binder.read(cursor));
+				}
+			} finally {
+				cursor.close();
+			}
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Gets the cache where the rows read by the current thread are stored. Rows read inside a transaction
+	 * of the user are not stored, because they can be rolled back.
+	 * @param  entity  Entity of the rows.
+	 * @return Cache of the entity, or null if the rows are not stored.
+	 */
+	private EntityCache getCache(final Entity entity) {
+		return (null == transactions.get()) ? entity.getCache() : null;
+	}
+
+
+	/**
+	 * Checks if a query selects all the rows of the table, without condition, order or limit.
+	 * @param  query  Query to check.
+	 * @return Boolean value that is true if the query selects all the rows.
+	 */
+	private static boolean isSelectAll(final Query query) {
+		return TextUtils.isEmpty(query.getCondition()) && null == query.getOrderBy() && query.getLimit() <= 0
+			   && query.getOffset() <= 0;
+	}
+
+
+	/**
+	 * Checks if a row exists with a cached statement, without reading its columns.
+	 * @param  entity  Entity of the row.
+	 * @param  id      Id of the row.
+	 * @return Boolean value that is true if the row exists.
+	 */
+	boolean executeExists(final Entity entity, final long id) {
+		boolean exists = false;
+
+		try {
+			final SQLiteStatement statement = statements.acquire(getReadDatabase(), entity.getExistsSql());
+			try {
+				synchronized (statement) {
+					statement.clearBindings();
+					statement.bindLong(1, id);
+					try {
+						statement.simpleQueryForLong();
+						exists = true;
+					} catch (final SQLiteDoneException e) {
+						// The query returns no rows.
+						exists = false;
+					}
+				}
+			} finally {
+				statements.release(statement);
+			}
+		} catch (final SQLException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "When executing a query: " + e.getMessage(), e);
+		}
+
+		return exists;
+	}
+
+
+	/**
+	 * Executes a query that returns data of an entity, reading the rows while they are iterated.
+	 * @param  query  Query to execute. Must be of type SELECT.
+	 * @return Results of the query. Must be closed if they are not iterated until the end.
+	 * @throws JaiberdroidException When there is an error on query.
+	 */
+	@SuppressWarnings("rawtypes")
+	ResultIterator executeIterator(final Query query) throws JaiberdroidException {
+		if (!Query.Type.SELECT.equals(query.getType())) {
+			throw new JaiberdroidException("Only Select queries can be iterated");
+		}
+
+		try {
+			return new ResultIterator(select(query), query.getEntity(), sessions.get());
+		} catch (final SQLException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "When executing a query: " + e.getMessage(), e);
+			throw new JaiberdroidException("Executing SQL: " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Gets a cursor with the results of a select query.
+	 * @param  query  Query to execute.
+	 * @return Cursor with the results.
+	 */
+	private Cursor select(final Query query) {
+		final SQLiteDatabase database = getReadDatabase();
+
+		final String[] columns;
+		if (null != query.getEntity().getMapper()) {
+			columns = query.getEntity().getMapper().getColumns();
+		} else {
+			columns = query.getFields();
+		}
+
+		final String limit = JaiberdroidSql.getLimitSql(query.getOffset(), query.getLimit());
+
+		// Cancellation signals are only available since Jelly Bean.
+		final Object signal = CANCELLATION.get();
+		if (null != signal && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			return database.query(false, query.getEntity().getTableName(), columns, query.getCondition(),
+								query.getArgsArray(), null, null, query.getOrderBy(), limit,
+								(CancellationSignal) signal);
+		}
+
+		return database.query(query.getEntity().getTableName(), columns, query.getCondition(),
+							query.getArgsArray(), null, null, query.getOrderBy(), limit);
+	}
+
+
+	/**
+	 * Begins a transaction of the user in the current thread. Nested transactions are savepoints of the
+	 * first one, and the queries executed inside them don't open their own transactions.
+	 * @throws JaiberdroidException When the transaction can't be started.
+	 */
+	void beginUnit() throws JaiberdroidException {
+		UnitOfWork unit = transactions.get();
+
+		try {
+			final SQLiteDatabase database = getWritableDatabase();
+
+			if (null == unit) {
+				unit = new UnitOfWork();
+				if (JaiberdroidInstance.isDebug()) {
+					Log.d(SQL_TAG, "BEGIN");
+				}
+				beginTransaction(database);
+				transactions.set(unit);
+			} else {
+				final String sql = JaiberdroidSql.getSavepointSql(unit.getDepth());
+				if (JaiberdroidInstance.isDebug()) {
+					Log.d(SQL_TAG, sql);
+				}
+				database.execSQL(sql);
+			}
+			unit.begin();
+		} catch (final SQLException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "When starting transaction: " + e.getMessage(), e);
+			throw new JaiberdroidException("Starting transaction: " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Ends the last transaction of the user in the current thread. The first transaction is committed or
+	 * rolled back, and the nested ones are released or rolled back to their savepoints.
+	 * @param  successful  Boolean value that is true to commit the transaction.
+	 * @throws JaiberdroidException When there is no transaction or it can't be ended.
+	 */
+	void endUnit(final boolean successful) throws JaiberdroidException {
+		final UnitOfWork unit = transactions.get();
+
+		if (null == unit) {
+			throw new JaiberdroidException("There is no transaction in the current thread");
+		}
+
+		final int depth = unit.end(successful);
+		if (!successful) {
+			// The objects of the session can have changes that are undone.
+			clearSession();
+		}
+		try {
+			final SQLiteDatabase database = getWritableDatabase();
+
+			if (0 == depth) {
+				transactions.remove();
+				try {
+					if (successful) {
+						database.setTransactionSuccessful();
+					}
+				} finally {
+					if (JaiberdroidInstance.isDebug()) {
+						Log.d(SQL_TAG, successful ? "COMMIT" : "ROLLBACK");
+					}
+					database.endTransaction();
+					// The counts can't be updated until the transaction ends.
+					for (final String table : unit.getTables()) {
+						countRows(table, null);
+						clearEntityCache(table);
+					}
+					if (successful && !unit.getChanges().isEmpty()) {
+						changes.publish(unit.getChanges());
+					}
+				}
+			} else {
+				if (!successful) {
+					final String sql = JaiberdroidSql.getRollbackToSql(depth);
+					if (JaiberdroidInstance.isDebug()) {
+						Log.d(SQL_TAG, sql);
+					}
+					database.execSQL(sql);
+				}
+				database.execSQL(JaiberdroidSql.getReleaseSql(depth));
+			}
+		} catch (final SQLException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "When ending transaction: " + e.getMessage(), e);
+			throw new JaiberdroidException("Ending transaction: " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Updates the cached count of a table after a modification, and drops the cached results of the table.
+	 * Inside a transaction of the user, the count is removed and the table is stored, to remove it again when
+	 * the transaction ends.
+	 * @param  table  Name of the table.
+	 * @param  rows   Number of rows inserted, negative number of rows deleted, or null if it's unknown.
+	 */
+	private void countRows(final String table, final Long rows) {
+		final UnitOfWork unit = transactions.get();
+
+		if (null != resultCache) {
+			resultCache.modified(table);
+		}
+
+		if (null != unit) {
+			unit.addTable(table);
+		}
+		if (null != counts) {
+			if (null == rows || null != unit) {
+				counts.remove(table);
+			} else if (0 != rows) {
+				counts.add(table, rows);
+			}
+		}
+	}
+
+
+	/**
+	 * Begins a transaction. With write-ahead logging, the transaction is immediate, so it doesn't block the
+	 * readers.
+	 * @param  database  Database of the transaction.
+	 */
+	private void beginTransaction(final SQLiteDatabase database) {
+		if (wal) {
+			database.beginTransactionNonExclusive();
+		} else {
+			database.beginTransaction();
+		}
+	}
+
+
+	/**
+	 * Gets the database for reading. With write-ahead logging, the queries executed outside of a transaction
+	 * use the pool of read-only connections of the database, so they run in parallel with the writer.
+	 * @return Database for reading.
+	 */
+	private SQLiteDatabase getReadDatabase() {
+		return getWritableDatabase();
+	}
+
+
+	/**
+	 * Sets the cancellation signal of the selects executed by the current thread.
+	 * @param  signal  CancellationSignal of the selects, or null to remove it.
+	 */
+	static void setCancellationSignal(final Object signal) {
+		if (null == signal) {
+			CANCELLATION.remove();
+		} else {
+			CANCELLATION.set(signal);
+		}
+	}
+
+
+	/**
+	 * Prints a debug trace for a query.
+	 * @param  query  Query to print in debug.
+	 */
+	private static void debugQuery(final Query query) {
+		if (JaiberdroidInstance.isDebug() && null != query) {
+			final StringBuilder message = new StringBuilder();
+
+			message.append(query.getType().name());
+			message.append(" over ");
+			message.append(query.getEntity().getTableName());
+			message.append(" |");
+			if (null != query.getValues() && query.getValues().size() > 0) {
+				message.append(" values [");
+				message.append(query.getValues());
+				message.append(']');
+			}
+			if (!TextUtils.isEmpty(query.getCondition())) {
+				message.append(" condition [");
+				message.append(query.getCondition());
+				message.append(']');
+			}
+			if (null != query.getArgs()) {
+				message.append(" variables [ ");
+				for (int i = 0; i < query.getArgs().size(); ++i) {
+					message.append(query.getArgsArray());
+					message.append(' ');
+				}
+				message.append(']');
+			}
+
+			Log.d(SQL_TAG, message.toString());
+		}
+	}
+
+
+	/**
+	 * Execute a list of queries in database.
+	 * @param  database     Database into execute queries.
+	 * @param  queries      List of String with queries to execute.
+	 * @param  transaction  Boolean value that sets if the queries are executed in transacction. 
+	 */
+	private boolean executeUpdates(final List<String> queries, final boolean transaction,
+									final SQLiteDatabase database) {
+		boolean ok = false;
+
+		if (null != queries) {
+			try {
+				if (transaction) {
+					if (JaiberdroidInstance.isDebug()) {
+						Log.d(SQL_TAG, "BEGIN");
+					}
+					database.beginTransaction();
+				}
+	
+				try {
+					for (String query : queries) {
+						if (JaiberdroidInstance.isDebug()) {
+							Log.d(SQL_TAG, query);
+						}
+						database.execSQL(query);
+					}
+	
+					if (transaction && database.inTransaction()) {
+						if (JaiberdroidInstance.isDebug()) {
+							Log.d(SQL_TAG, "COMMIT");
+						}
+						database.setTransactionSuccessful();
+					}
+				} catch (final SQLException e) {
+					Log.e(JaiberdroidInstance.LOG_TAG, "When executing SQL: " + e.getMessage(), e);
+				}
+	
+				if (transaction && database.inTransaction()) {
+					if (JaiberdroidInstance.isDebug()) {
+						Log.d(SQL_TAG, "END");
+					}
+					database.endTransaction();
+				}
+
+				ok = true;
+			} catch (final SQLException e) {
+				Log.e(JaiberdroidInstance.LOG_TAG, "Problem in update: " + e.getMessage(), e);
+			}
+		}
+
+		return ok;
+	}
+
+
+	/**
+	 * Counts the rows of an entity with a cached statement. When the count cache is enabled, the count of all
+	 * the rows of a table is read from database only once.
+	 * @param  entity     Entity with table to count.
+	 * @param  condition  Condition of the rows to count, or null to count all the rows.
+	 * @param  args       Arguments of the condition. Can be null.
+	 * @return Number of rows, or 0 if there is an error.
+	 * @throws JaiberdroidException 
+	 */
+	long executeCountQuery(final Entity entity, final String condition, final List<String> args)
+							throws JaiberdroidException {
+		final boolean all = TextUtils.isEmpty(condition);
+		// Inside a transaction of the user, the counts can include changes that are rolled back.
+		final boolean cache = all && null != counts && null == transactions.get();
+		long count = 0;
+
+		if (cache) {
+			final Long cached = counts.get(entity.getTableName());
+			if (null != cached) {
+				return cached;
+			}
+		}
+
+		final String sql = all ? entity.getCountSql() : JaiberdroidSql.getCountSql(entity.getTableName(), condition);
+		// Counts of all the rows are only cached by the count cache.
+		final String key = all ? null : getResultKey(RESULT_COUNT, sql, args);
+		final String[] tables = {entity.getTableName()};
+
+		if (null != key) {
+			final Long cached = (Long) resultCache.get(key);
+			if (null != cached) {
+				return cached;
+			}
+		}
+
+		try {
+			final long version = cache ? counts.getVersion() : 0;
+			final long[] versions = (null != key) ? resultCache.getVersions(tables) : null;
+
+			final SQLiteStatement statement = statements.acquire(getReadDatabase(), sql);
+			try {
+				synchronized (statement) {
+					StatementCache.bind(statement, null, args);
+					count = statement.simpleQueryForLong();
+				}
+			} finally {
+				statements.release(statement);
+			}
+
+			if (cache) {
+				counts.put(entity.getTableName(), count, version);
+			}
+			if (null != key) {
+				resultCache.put(key, count, 1, tables, versions);
+			}
+		} catch (final SQLException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "When executing a query: " + e.getMessage(), e);
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Executes an aggregate query that returns one value, with a cached statement.
+	 * @param  sql   SQL query to execute.
+	 * @param  args  Arguments of the query. Can be null.
+	 * @return Value returned by the query, or null if it's null.
+	 * @throws JaiberdroidException When there is an error on query.
+	 */
+	String executeAggregate(final String sql, final List<String> args) throws JaiberdroidException {
+		final String key = getResultKey(RESULT_AGGREGATE, sql, args);
+		final String[] tables = (null != key) ? getTables(sql) : null;
+
+		if (null != tables) {
+			final String cached = (String) resultCache.get(key);
+			if (null != cached) {
+				return cached;
+			}
+		}
+
+		try {
+			if (JaiberdroidInstance.isDebug()) {
+				Log.d(SQL_TAG, sql);
+			}
+			final long[] versions = (null != tables) ? resultCache.getVersions(tables) : null;
+			final String value;
+			final SQLiteStatement statement = statements.acquire(getReadDatabase(), sql);
+			try {
+				synchronized (statement) {
+					StatementCache.bind(statement, null, args);
+					value = statement.simpleQueryForString();
+				}
+			} finally {
+				statements.release(statement);
+			}
+
+			// Null values can't be distinguished from results not cached.
+			if (null != tables && null != value) {
+				resultCache.put(key, value, 1, tables, versions);
+			}
+
+			return value;
+		} catch (final SQLException e) {
+			Log.e(JaiberdroidInstance.LOG_TAG, "When executing a query: " + e.getMessage(), e);
+			throw new JaiberdroidException("Executing SQL: " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Opens a session in the current thread. Nested sessions use the objects of the first one.
+	 */
+	void beginSession() {
+		IdentityMap session = sessions.get();
+
+		if (null == session) {
+			session = new IdentityMap();
+			sessions.set(session);
+		}
+		session.begin();
+	}
+
+
+	/**
+	 * Closes the last session of the current thread. When the first session is closed, its objects are
+	 * removed.
+	 * @throws JaiberdroidException When there is no session.
+	 */
+	void endSession() throws JaiberdroidException {
+		final IdentityMap session = sessions.get();
+
+		if (null == session) {
+			throw new JaiberdroidException("There is no session in the current thread");
+		}
+
+		if (0 == session.end()) {
+			if (JaiberdroidInstance.isDebug()) {
+				Log.d(JaiberdroidInstance.LOG_TAG, "Session closed with " + session.size() + " objects");
+			}
+			sessions.remove();
+		}
+	}
+
+
+	/**
+	 * Gets an object from the session of the current thread, without reading the database.
+	 * @param  entity  Entity of the object.
+	 * @param  id      Id of the object.
+	 * @return Object of the session, or null if there is no session or the object is not in it.
+	 */
+	Object findInSession(final Entity entity, final long id) {
+		final IdentityMap session = sessions.get();
+
+		return (null != session) ? session.get(entity.getReferenced(), id) : null;
+	}
+
+
+	/**
+	 * Removes all the objects of the session of the current thread.
+	 */
+	void clearSession() {
+		final IdentityMap session = sessions.get();
+
+		if (null != session) {
+			session.clear();
+		}
+	}
+
+
+	/**
+	 * Updates the session of the current thread and the cache of the entity after a modification of a row.
+	 * The object inserted or updated is stored in the session, and deletes remove the object deleted or, when
+	 * the rows are unknown, all the objects of the entity. The row modified is removed from the cache.
+	 * @param  query  Query executed.
+	 * @param  id     Id of the row modified, or -1 if the rows are unknown.
+	 */
+	private void updateCaches(final Query query, final long id) {
+		final EntityCache cache = query.getEntity().getCache();
+		final IdentityMap session = sessions.get();
+
+		if (null != cache) {
+			if (-1 == id || SQLiteDatabase.CONFLICT_REPLACE == query.getConflict()) {
+				// Replaces can delete other rows with the same unique values.
+				cache.clear();
+			} else if (Query.Type.INSERT.equals(query.getType())) {
+				cache.inserted();
+			} else {
+				cache.remove(id);
+			}
+		}
+
+		if (null != session) {
+			final Class<?> type = query.getEntity().getReferenced();
+			if (-1 == id) {
+				session.remove(type);
+			} else if (Query.Type.DELETE.equals(query.getType()) || null == query.getObject()) {
+				session.remove(type, id);
+			} else {
+				session.put(type, id, query.getObject());
+			}
+		}
+	}
+
+
+	/**
+	 * Adds a listener of the changes of an entity.
+	 * @param  entity    Entity to listen.
+	 * @param  listener  Listener of the changes.
+	 * @param  executor  Executor where the listener is called, or null to call it in the thread of the changes.
+	 */
+	void addChangeListener(final Entity entity, final ChangeEvent.Listener listener, final Executor executor) {
+		changes.add(entity.getTableName(), listener, executor);
+	}
+
+
+	/**
+	 * Removes a listener of the changes of an entity.
+	 * @param  entity    Entity listened.
+	 * @param  listener  Listener to remove.
+	 */
+	void removeChangeListener(final Entity entity, final ChangeEvent.Listener listener) {
+		changes.remove(entity.getTableName(), listener);
+	}
+
+
+	/**
+	 * Publishes a change committed to the listeners of its entity. Inside a transaction of the user, the
+	 * change is stored and published when the transaction is committed.
+	 * @param  entity     Entity changed.
+	 * @param  operation  Operation executed.
+	 * @param  id         Id of the row changed, or -1 if the rows are not known.
+	 */
+	private void changed(final Entity entity, final Query.Type operation, final long id) {
+		if (changes.hasListeners(entity.getTableName())) {
+			final UnitOfWork unit = transactions.get();
+
+			if (null != unit) {
+				unit.getChanges().add(entity, operation, id);
+			} else {
+				final ChangeSet changeSet = new ChangeSet();
+				changeSet.add(entity, operation, id);
+				changes.publish(changeSet);
+			}
+		}
+	}
+
+
+	/**
+	 * Publishes the changes of a SQL query that modifies the tables, for the entities whose tables are named
+	 * in the query. The rows changed are not known.
+	 * @param  sql  SQL query executed.
+	 */
+	private void changed(final String sql) {
+		// The type of statements can only be read since Honeycomb.
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+			&& DatabaseUtils.STATEMENT_SELECT == DatabaseUtils.getSqlStatementType(sql)) {
+			return;
+		}
+
+		final String command = sql.trim().toUpperCase(Locale.US);
+		final Query.Type operation;
+		if (command.startsWith(SQL_INSERT) || command.startsWith(SQL_REPLACE)) {
+			operation = Query.Type.INSERT;
+		} else if (command.startsWith(SQL_DELETE)) {
+			operation = Query.Type.DELETE;
+		} else if (command.startsWith(SQL_UPDATE)) {
+			operation = Query.Type.UPDATE;
+		} else {
+			// Selects before Honeycomb, or statements that don't change rows.
+			return;
+		}
+
+		for (final Entity entity : getEntities(sql)) {
+			changed(entity, operation, -1);
+		}
+	}
+
+
+	/**
+	 * Gets the key of a select in the cache of results.
+	 * @param  prefix  Prefix of the type of result.
+	 * @param  sql     SQL query of the select.
+	 * @param  args    Arguments of the select. Can be null.
+	 * @return Key of the select, or null if the cache is not enabled or the thread is inside a transaction of
+	 *         the user, whose changes can be rolled back.
+	 */
+	private String getResultKey(final String prefix, final String sql, final List<String> args) {
+		String key = null;
+
+		if (null != resultCache && null == transactions.get()) {
+			key = prefix + ResultCache.getKey(sql, args);
+		}
+
+		return key;
+	}
+
+
+	/**
+	 * Gets the SQL query of an entity select, used as key of its results. Arguments are not included.
+	 * @param  query  Select query.
+	 * @return SQL query of the select.
+	 */
+	private static String getSelectKey(final Query query) {
+		return JaiberdroidSql.getSelectSql(query.getEntity().getTableName(), new String[] {"*"},
+										query.getCondition(), null, query.getOrderBy(),
+										JaiberdroidSql.getLimitSql(query.getOffset(), query.getLimit()));
+	}
+
+
+	/**
+	 * Gets the tables of the entities used by a SQL query that only reads the database. The tables are found
+	 * by their names in the query.
+	 * @param  sql  SQL query.
+	 * @return Array with the names of the tables, or null if the query is not a select or it doesn't use
+	 *         any table of an entity.
+	 */
+	private String[] getTables(final String sql) {
+		// The type of statements can only be read since Honeycomb.
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB
+			|| DatabaseUtils.STATEMENT_SELECT != DatabaseUtils.getSqlStatementType(sql)) {
+			return null;
+		}
+
+		final List<Entity> entities = getEntities(sql);
+		final String[] tables = new String[entities.size()];
+		for (int i = 0; i < tables.length; ++i) {
+			tables[i] = entities.get(i).getTableName();
+		}
+
+		return (tables.length > 0) ? tables : null;
+	}
+
+
+	/**
+	 * Gets the entities whose tables are used by a SQL query, found by their names in the places of tables of
+	 * the query.
+	 * @param  sql  SQL query.
+	 * @return List with the entities.
+	 */
+	private List<Entity> getEntities(final String sql) {
+		final List<Entity> entities = new ArrayList<Entity>();
+		final List<String> tables = JaiberdroidSql.getTableNames(sql);
+
+		for (final Entity entity : entityManager.getEntities()) {
+			for (final String table : tables) {
+				if (table.equalsIgnoreCase(entity.getTableName())) {
+					entities.add(entity);
+					break;
+				}
+			}
+		}
+
+		return entities;
+	}
+
+
+	/**
+	 * Copies the rows of a SQL query, so the rows cached are not modified.
+	 * @param  rows  Rows of the query.
+	 * @return List with a copy of the rows.
+	 */
+	private static List<Map<String, String>> copyRows(final List<Map<String, String>> rows) {
+		final List<Map<String, String>> copy = new ArrayList<Map<String, String>>(rows.size());
+
+		for (final Map<String, String> row : rows) {
+			copy.add(new HashMap<String, String>(row));
+		}
+
+		return copy;
+	}
+
+
+	/**
+	 * Gets the id of the row of a query with the condition of the primary key.
+	 * @param  query  Query of a row.
+	 * @return Id of the row, or -1 if the condition is not of the primary key.
+	 */
+	private static long getKeyArg(final Query query) {
+		long id = -1;
+
+		if (JaiberdroidSql.KEY_CONDITION.equals(query.getCondition()) && null != query.getArgs()
+			&& 1 == query.getArgs().size()) {
+			try {
+				id = Long.parseLong(query.getArgs().get(0));
+			} catch (final NumberFormatException e) {
+				id = -1;
+			}
+		}
+
+		return id;
+	}
+
+
+	/**
+	 * Removes all the cached counts, results and rows of the entities, and the objects of the session.
+	 */
+	void clearCaches() {
+		if (null != counts) {
+			counts.clear();
+		}
+		if (null != resultCache) {
+			resultCache.clear();
+		}
+		for (final Entity entity : entityManager.getEntities()) {
+			if (null != entity.getCache()) {
+				entity.getCache().clear();
+			}
+		}
+		clearSession();
+	}
+
+
+	/**
+	 * Removes all the cached data after a SQL query that can modify the tables. Inside a transaction of the
+	 * user, the tables of the entities used by the query are cleared again when it's committed.
+	 * @param  sql  SQL query executed.
+	 */
+	private void clearCaches(final String sql) {
+		// The type of statements can only be read since Honeycomb.
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB
+			|| DatabaseUtils.STATEMENT_SELECT != DatabaseUtils.getSqlStatementType(sql)) {
+			for (final Entity entity : getEntities(sql)) {
+				countRows(entity.getTableName(), null);
+			}
+			clearCaches();
+		}
+	}
+
+
+	/**
+	 * Removes the cached rows of a table.
+	 * @param  table  Name of the table.
+	 */
+	private void clearEntityCache(final String table) {
+		for (final Entity entity : entityManager.getEntities()) {
+			if (null != entity.getCache() && table.equals(entity.getTableName())) {
+				entity.getCache().clear();
+			}
+		}
+	}
+
+
+	/**
+	 * Sets the id generated for an inserted object.
+	 * @param  entity  Entity of the object.
+	 * @param  object  Object inserted.
+	 * @param  id      Row id generated by database.
+	 * @throws JaiberdroidException When the id doesn't fit in an int primary key.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void setId(final Entity entity, final Object object, final long id)
+							throws JaiberdroidException {
+		final Field key = entity.getFields().getKey();
+
+		if (null != entity.getMapper()) {
+			try {
+				entity.getMapper().setId(object, id);
+			} catch (final IllegalArgumentException e) {
+				throw new JaiberdroidException(e.getMessage());
+			}
+		} else if (ColumnAdapter.LONG == key.getAdapter()) {
+			JaiberdroidReflection.executeSetMethod(key, object, id);
+		} else if (id > Integer.MAX_VALUE) {
+			throw new JaiberdroidException("Id " + id + " doesn't fit in the int field _id of table "
+										+ entity.getTableName() + ". Use a long field.");
+		} else {
+			JaiberdroidReflection.executeSetMethod(key, object, (int) id);
+		}
+	}
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Cache of the results of selects, by SQL query and arguments, with LRU eviction. Each result stores the
+ * tables it depends on, with their versions when it was read. Every write increases the version of its table,
+ * so results are dropped when one of their tables changes.</p>
+ * <p>The size of the cache is the total number of rows of the results stored, so its memory is bounded
+ * independently of the number of results.</p>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+final class ResultCache {
+	/** Results stored, by key, in access order. */
+	private final Map<String, Result> results = new LinkedHashMap<String, Result>(16, 0.75f, true);
+	/** Version of each table modified. Tables not modified have version 0. Versions never decrease. */
+	private final Map<String, Long> versions = new HashMap<String, Long>();
+	/** Maximum number of rows stored. */
+	private final int maxRows;
+	/** Number of rows stored. */
+	private int rows = 0;
+	/** Version of the cache, changes when all the tables are modified. */
+	private long version = 0;
+
+
+	/**
+	 * Result of a select.
+	 */
+	private static final class Result {
+		/** Value of the result. */
+		private final Object value;
+		/** Number of rows of the result. */
+		private final int rows;
+		/** Tables of the result. */
+		private final String[] tables;
+		/** Versions of the tables when the result was read. */
+		private final long[] versions;
+
+
+		/**
+		 * Creates a result.
+		 * @param  value     Value of the result.
+		 * @param  rows      Number of rows of the result.
+		 * @param  tables    Tables of the result.
+		 * @param  versions  Versions of the tables when the result was read.
+		 */
+		private Result(final Object value, final int rows, final String[] tables, final long[] versions) {
+			this.value = value;
+			this.rows = rows;
+			this.tables = tables;
+			this.versions = versions;
+		}
+	}
+
+
+	/**
+	 * Creates a new cache.
+	 * @param  maxRows  Maximum number of rows stored.
+	 */
+	ResultCache(final int maxRows) {
+		this.maxRows = maxRows;
+	}
+
+
+	/**
+	 * Gets the key of a select.
+	 * @param  sql   SQL query or condition of the select.
+	 * @param  args  Arguments of the select. Can be null.
+	 * @return Key of the select.
+	 */
+	static String getKey(final String sql, final Iterable<String> args) {
+		final StringBuilder key = new StringBuilder(sql);
+
+		if (null != args) {
+			for (final String arg : args) {
+				// The arguments are separated by a character that can't be in the SQL query.
+				key.append('\0');
+				key.append(arg);
+			}
+		}
+
+		return key.toString();
+	}
+
+
+	/**
+	 * Gets a result, if its tables have not been modified.
+	 * @param  key  Key of the select.
+	 * @return Value of the result, or null if it's not in cache.
+	 */
+	synchronized Object get(final String key) {
+		final Result result = results.get(key);
+
+		if (null != result) {
+			for (int i = 0; i < result.tables.length; ++i) {
+				if (result.versions[i] != getVersion(result.tables[i])) {
+					remove(key);
+					return null;
+				}
+			}
+			return result.value;
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Gets the versions of some tables. Must be read before reading a result from database.
+	 * @param  tables  Names of the tables.
+	 * @return Array with the versions.
+	 */
+	synchronized long[] getVersions(final String... tables) {
+		final long[] result = new long[tables.length];
+
+		for (int i = 0; i < tables.length; ++i) {
+			result[i] = getVersion(tables[i]);
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Stores a result, if it fits in the cache and its tables have not been modified while it was read.
+	 * The results least recently used are removed to make room.
+	 * @param  key       Key of the select.
+	 * @param  value     Value of the result.
+	 * @param  rows      Number of rows of the result.
+	 * @param  tables    Tables of the result.
+	 * @param  versions  Versions of the tables before reading the result.
+	 */
+	synchronized void put(final String key, final Object value, final int rows, final String[] tables,
+						  final long[] versions) {
+		if (rows > maxRows) {
+			return;
+		}
+		for (int i = 0; i < tables.length; ++i) {
+			if (versions[i] != getVersion(tables[i])) {
+				return;
+			}
+		}
+
+		remove(key);
+		final Iterator<Result> eldest = results.values().iterator();
+		while (this.rows + rows > maxRows && eldest.hasNext()) {
+			this.rows -= eldest.next().rows;
+			eldest.remove();
+		}
+		results.put(key, new Result(value, rows, tables, versions));
+		this.rows += rows;
+	}
+
+
+	/**
+	 * Increases the version of a table after a modification.
+	 * @param  table  Name of the table.
+	 */
+	synchronized void modified(final String table) {
+		versions.put(table, getVersion(table) + 1);
+	}
+
+
+	/**
+	 * Removes all the results, after a modification of unknown tables.
+	 */
+	synchronized void clear() {
+		// The results being read are not stored.
+		++version;
+		results.clear();
+		rows = 0;
+	}
+
+
+	/**
+	 * Gets the version of a table.
+	 * @param  table  Name of the table.
+	 * @return Version of the table.
+	 */
+	private long getVersion(final String table) {
+		final Long tableVersion = versions.get(table);
+
+		return version + ((null != tableVersion) ? tableVersion : 0);
+	}
+
+
+	/**
+	 * Removes a result.
+	 * @param  key  Key of the select.
+	 */
+	private void remove(final String key) {
+		final Result result = results.remove(key);
+
+		if (null != result) {
+			rows -= result.rows;
+		}
+	}
+}
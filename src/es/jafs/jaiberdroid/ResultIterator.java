@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import android.database.Cursor;
+
+/**
+ * <p>Results of a query that are read from database while they are iterated. Each object is created when
+ * next() is called, so only the rows in use are stored in memory.</p>
+ * <p>The cursor of the query is closed when the last row is read. If the iteration is not finished, close()
+ * must be called.</p>
+ * <pre>
+ *   final ResultIterator&lt;File&gt; files = query.iterateAll();
+ *   try {
+ *     for (final File file : files) {
+ *       ...
+ *     }
+ *   } finally {
+ *     files.close();
+ *   }
+ * </pre>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ * @param <T> Class of entity.
+ */
+public final class ResultIterator<T> implements Iterator<T>, Iterable<T>, Closeable {
+	/** Cursor with the results. */
+	private final Cursor cursor;
+	/** Plan for converting the rows into objects. */
+	private final RowBinder binder;
+	/** Indicates if there are more rows. */
+	private boolean more;
+
+
+	/**
+	 * Creates the results of a cursor.
+	 * @param  cursor   Cursor with the results of a query.
+	 * @param  entity   Entity of the rows.
+	 * @param  session  Objects of the session of the thread, or null if there is no session.
+	 */
+	ResultIterator(final Cursor cursor, final Entity entity, final IdentityMap session) {
+		this.cursor = cursor;
+		this.binder = new RowBinder(entity, cursor, session);
+
+		more = cursor.moveToFirst();
+		if (!more) {
+			close();
+		}
+	}
+
+
+	/**
+	 * Gets a boolean value that indicates if there are more rows.
+	 * @return Boolean value that is true if there are more rows.
+	 */
+	@Override
+	public boolean hasNext() {
+		return more;
+	}
+
+
+	/**
+	 * Gets the object of the next row.
+	 * @return Object with data of the row.
+	 * @throws NoSuchElementException When there are no more rows.
+	 * @throws IllegalStateException  When the row can't be converted into an object.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T next() {
+		if (!more) {
+			throw new NoSuchElementException();
+		}
+
+		final T result;
+		try {
+			result = (T) binder.read(cursor);
+		} catch (final JaiberdroidException e) {
+			close();
+			throw new IllegalStateException("Reading row: " + e.getMessage());
+		}
+
+		more = cursor.moveToNext();
+		if (!more) {
+			close();
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Rows can't be removed from results.
+	 * @throws UnsupportedOperationException Always.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Results are read only");
+	}
+
+
+	/**
+	 * Gets the iterator of results, that is the current object. Results can be iterated only once.
+	 * @return The current object.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return this;
+	}
+
+
+	/**
+	 * Closes the cursor of the results.
+	 */
+	@Override
+	public void close() {
+		more = false;
+		if (!cursor.isClosed()) {
+			cursor.close();
+		}
+	}
+}
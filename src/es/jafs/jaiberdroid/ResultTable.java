@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import android.database.Cursor;
+import android.os.Build;
+
+/**
+ * <p>Results of a SQL query stored by columns. Each column is stored in an array of its type (long, double or
+ * String), with a bitmap of null values, so rows don't need maps and numbers are not converted into strings.</p>
+ * <p>The type of a column is the type of its first value that is not null. If next values have other type,
+ * the column is converted: integers to real numbers, and numbers to strings. Before Android 3.0 the type of
+ * the values can't be read, so all columns are strings.</p>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+public final class ResultTable {
+	/** Column without values, all of them are null. */
+	public static final int TYPE_NULL = 0;
+	/** Column of integer numbers. */
+	public static final int TYPE_LONG = 1;
+	/** Column of real numbers. */
+	public static final int TYPE_DOUBLE = 2;
+	/** Column of strings. */
+	public static final int TYPE_STRING = 3;
+
+	/** Names of the columns. */
+	private final String[] names;
+	/** Number of rows. */
+	private final int rows;
+	/** Types of the columns. */
+	private final int[] types;
+	/** Values of the integer columns. */
+	private final long[][] longs;
+	/** Values of the real columns. */
+	private final double[][] doubles;
+	/** Values of the string columns. */
+	private final String[][] strings;
+	/** Bitmaps of null values of each column. */
+	private final long[][] nulls;
+
+
+	/**
+	 * Creates a table reading all the rows of a cursor. The cursor is not closed.
+	 * @param  cursor  Cursor with the results of a query.
+	 */
+	ResultTable(final Cursor cursor) {
+		final int columns = cursor.getColumnCount();
+		final boolean typed = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+
+		names = cursor.getColumnNames();
+		rows = cursor.getCount();
+		types = new int[columns];
+		longs = new long[columns][];
+		doubles = new double[columns][];
+		strings = new String[columns][];
+		nulls = new long[columns][(rows + 63) >> 6];
+
+		if (!typed) {
+			for (int column = 0; column < columns; ++column) {
+				setType(column, TYPE_STRING);
+			}
+		}
+
+		int row = 0;
+		while (cursor.moveToPosition(row)) {
+			for (int column = 0; column < columns; ++column) {
+				if (cursor.isNull(column)) {
+					nulls[column][row >> 6] |= 1L << row;
+				} else {
+					if (typed) {
+						setType(column, getType(cursor, column));
+					}
+					read(cursor, row, column);
+				}
+			}
+			++row;
+		}
+	}
+
+
+	/**
+	 * Gets the type of a value of the current row of a cursor.
+	 * @param  cursor  Cursor placed in the row.
+	 * @param  column  Position of the column.
+	 * @return Type of the value.
+	 */
+	private static int getType(final Cursor cursor, final int column) {
+		final int type;
+
+		switch (cursor.getType(column)) {
+			case Cursor.FIELD_TYPE_INTEGER:
+				type = TYPE_LONG;
+				break;
+			case Cursor.FIELD_TYPE_FLOAT:
+				type = TYPE_DOUBLE;
+				break;
+			default:
+				type = TYPE_STRING;
+				break;
+		}
+
+		return type;
+	}
+
+
+	/**
+	 * Sets the type of a column, if it's wider than the current one. Values already read are converted.
+	 * @param  column  Position of the column.
+	 * @param  type    Type of a value of the column.
+	 */
+	private void setType(final int column, final int type) {
+		if (type > types[column]) {
+			if (TYPE_DOUBLE == type) {
+				doubles[column] = new double[rows];
+				if (null != longs[column]) {
+					for (int row = 0; row < rows; ++row) {
+						doubles[column][row] = longs[column][row];
+					}
+				}
+			} else if (TYPE_STRING == type) {
+				strings[column] = new String[rows];
+				if (TYPE_NULL != types[column]) {
+					for (int row = 0; row < rows; ++row) {
+						if (!isNull(row, column)) {
+							strings[column][row] = getString(row, column);
+						}
+					}
+				}
+			} else {
+				longs[column] = new long[rows];
+			}
+
+			types[column] = type;
+			if (TYPE_LONG != type) {
+				longs[column] = null;
+			}
+			if (TYPE_DOUBLE != type) {
+				doubles[column] = null;
+			}
+		}
+	}
+
+
+	/**
+	 * Reads a value of the current row of a cursor, with the type of its column.
+	 * @param  cursor  Cursor placed in the row.
+	 * @param  row     Position of the row.
+	 * @param  column  Position of the column.
+	 */
+	private void read(final Cursor cursor, final int row, final int column) {
+		switch (types[column]) {
+			case TYPE_LONG:
+				longs[column][row] = cursor.getLong(column);
+				break;
+			case TYPE_DOUBLE:
+				doubles[column][row] = cursor.getDouble(column);
+				break;
+			default:
+				strings[column][row] = cursor.getString(column);
+				break;
+		}
+	}
+
+
+	/**
+	 * Gets the number of rows.
+	 * @return Number of rows.
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+
+
+	/**
+	 * Gets the number of columns.
+	 * @return Number of columns.
+	 */
+	public int getColumnCount() {
+		return names.length;
+	}
+
+
+	/**
+	 * Gets the name of a column.
+	 * @param  column  Position of the column.
+	 * @return Name of the column.
+	 */
+	public String getColumnName(final int column) {
+		return names[column];
+	}
+
+
+	/**
+	 * Gets the position of a column.
+	 * @param  name  Name of the column.
+	 * @return Position of the column, or -1 if it not exists.
+	 */
+	public int getColumnIndex(final String name) {
+		for (int column = 0; column < names.length; ++column) {
+			if (names[column].equals(name)) {
+				return column;
+			}
+		}
+
+		return -1;
+	}
+
+
+	/**
+	 * Gets the type of a column.
+	 * @param  column  Position of the column.
+	 * @return Type of the column: TYPE_NULL, TYPE_LONG, TYPE_DOUBLE or TYPE_STRING.
+	 */
+	public int getType(final int column) {
+		return types[column];
+	}
+
+
+	/**
+	 * Gets a boolean value that indicates if a value is null.
+	 * @param  row     Position of the row.
+	 * @param  column  Position of the column.
+	 * @return Boolean value that is true if the value is null.
+	 */
+	public boolean isNull(final int row, final int column) {
+		if (row < 0 || row >= rows) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+		}
+
+		return 0 != (nulls[column][row >> 6] & (1L << row));
+	}
+
+
+	/**
+	 * Gets a value as a long number. Real numbers are truncated and strings are parsed.
+	 * @param  row     Position of the row.
+	 * @param  column  Position of the column.
+	 * @return Value, or 0 if it's null.
+	 * @throws NumberFormatException When the value is a string that is not a number.
+	 */
+	public long getLong(final int row, final int column) {
+		long value = 0;
+
+		if (!isNull(row, column)) {
+			switch (types[column]) {
+				case TYPE_LONG:
+					value = longs[column][row];
+					break;
+				case TYPE_DOUBLE:
+					value = (long) doubles[column][row];
+					break;
+				default:
+					value = Long.parseLong(strings[column][row]);
+					break;
+			}
+		}
+
+		return value;
+	}
+
+
+	/**
+	 * Gets a value as an int number. Real numbers are truncated and strings are parsed.
+	 * @param  row     Position of the row.
+	 * @param  column  Position of the column.
+	 * @return Value, or 0 if it's null.
+	 * @throws NumberFormatException When the value is a string that is not a number.
+	 */
+	public int getInt(final int row, final int column) {
+		return (int) getLong(row, column);
+	}
+
+
+	/**
+	 * Gets a value as a double number. Strings are parsed.
+	 * @param  row     Position of the row.
+	 * @param  column  Position of the column.
+	 * @return Value, or 0 if it's null.
+	 * @throws NumberFormatException When the value is a string that is not a number.
+	 */
+	public double getDouble(final int row, final int column) {
+		double value = 0;
+
+		if (!isNull(row, column)) {
+			switch (types[column]) {
+				case TYPE_LONG:
+					value = longs[column][row];
+					break;
+				case TYPE_DOUBLE:
+					value = doubles[column][row];
+					break;
+				default:
+					value = Double.parseDouble(strings[column][row]);
+					break;
+			}
+		}
+
+		return value;
+	}
+
+
+	/**
+	 * Gets a value as a string. Numbers are formatted.
+	 * @param  row     Position of the row.
+	 * @param  column  Position of the column.
+	 * @return Value, or null if it's null.
+	 */
+	public String getString(final int row, final int column) {
+		String value = null;
+
+		if (!isNull(row, column)) {
+			switch (types[column]) {
+				case TYPE_LONG:
+					value = Long.toString(longs[column][row]);
+					break;
+				case TYPE_DOUBLE:
+					value = Double.toString(doubles[column][row]);
+					break;
+				default:
+					value = strings[column][row];
+					break;
+			}
+		}
+
+		return value;
+	}
+}
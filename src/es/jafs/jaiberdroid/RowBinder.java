@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import android.database.Cursor;
+
+/**
+ * Plan for converting the rows of a cursor into objects. It's created once for each query, with the columns
+ * of the cursor, so every row only reads the values and executes the set methods. Inside a session, the rows
+ * already read return the objects of the session.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+final class RowBinder {
+	/** Entity of the rows. */
+	private final Entity entity;
+	/** Fields of the entity, in the same order of the positions. */
+	private final Field[] fields;
+	/** Positions of the columns in the cursor. */
+	private final int[] positions;
+	/** Indicates for each field if the attribute can store null values. */
+	private final boolean[] nullables;
+	/** Objects of the session of the thread, or null. */
+	private final IdentityMap session;
+	/** Position of the id in the cursor, or -1 if the rows are not stored in a session. */
+	private final int idPosition;
+
+
+	/**
+	 * Creates the plan for a cursor.
+	 * @param  entity   Entity of the rows.
+	 * @param  cursor   Cursor with results of a query.
+	 * @param  session  Objects of the session of the thread, or null if there is no session.
+	 */
+	RowBinder(final Entity entity, final Cursor cursor, final IdentityMap session) {
+		this.entity = entity;
+		this.session = session;
+		idPosition = (null != session) ? cursor.getColumnIndex(JaiberdroidSql._ID) : -1;
+
+		if (null != entity.getMapper()) {
+			// Generated mappers read the cursor by themselves.
+			fields = new Field[0];
+			positions = new int[0];
+			nullables = new boolean[0];
+		} else {
+			final String[] columns = cursor.getColumnNames();
+			final Field[] found = new Field[columns.length];
+			int count = 0;
+
+			for (int i = 0; i < columns.length; ++i) {
+				found[i] = entity.getFields().getField(columns[i]);
+				if (null != found[i]) {
+					++count;
+				}
+			}
+
+			// Columns that are not fields of the entity are ignored.
+			fields = new Field[count];
+			positions = new int[count];
+			nullables = new boolean[count];
+			count = 0;
+			for (int i = 0; i < found.length; ++i) {
+				if (null != found[i]) {
+					fields[count] = found[i];
+					positions[count] = i;
+					nullables[count] = !found[i].getFieldClass().isPrimitive();
+					++count;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Creates an object with the current row of the cursor.
+	 * @param  cursor  Cursor placed in the row to read.
+	 * @return Object of type of entity class.
+	 * @throws JaiberdroidException When a problem occurs.
+	 */
+	Object read(final Cursor cursor) throws JaiberdroidException {
+		if (-1 == idPosition) {
+			return create(cursor);
+		}
+
+		final long id = cursor.getLong(idPosition);
+		Object result = session.get(entity.getReferenced(), id);
+		if (null == result) {
+			result = create(cursor);
+			session.put(entity.getReferenced(), id, result);
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Creates a new object with the current row of the cursor.
+	 * @param  cursor  Cursor placed in the row to read.
+	 * @return Object of type of entity class.
+	 * @throws JaiberdroidException When a problem occurs.
+	 */
+	private Object create(final Cursor cursor) throws JaiberdroidException {
+		if (null != entity.getMapper()) {
+			return entity.getMapper().read(cursor);
+		}
+
+		final Object result;
+		try {
+			result = entity.getReferenced().newInstance();
+		} catch (final IllegalAccessException e) {
+			throw new JaiberdroidException("Illegal access: " + e.getMessage());
+		} catch (final InstantiationException e) {
+			throw new JaiberdroidException("Entity not instantiated: " + e.getMessage());
+		}
+
+		for (int i = 0; i < fields.length; ++i) {
+			if (nullables[i] && cursor.isNull(positions[i])) {
+				JaiberdroidReflection.executeSetMethod(fields[i], result, null);
+			} else {
+				JaiberdroidReflection.executeSetMethod(fields[i], result,
+														fields[i].getAdapter().read(cursor, positions[i]));
+			}
+		}
+
+		return result;
+	}
+}
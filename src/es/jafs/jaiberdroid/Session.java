@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+/**
+ * <p>Session that keeps the objects read in the current thread. While it's opened, each row is created only
+ * once: selects return the same object for the same entity class and id, and findByPk() doesn't read the
+ * database for objects already in the session. Inserted and updated objects are stored in the session, and
+ * deletes remove the objects of their entity.</p>
+ * <p>Changes made to the rows by raw SQL queries, or by other threads, are not seen by the objects of the
+ * session. Sessions can be nested: the objects are removed when the first session is closed.</p>
+ * <pre>
+ *   final Session session = Session.open();
+ *   try {
+ *     final File file = files.findByPk(id);
+ *     final List&lt;File&gt; all = files.getAll(); // Contains the same object.
+ *   } finally {
+ *     session.close();
+ *   }
+ * </pre>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+public final class Session {
+	/** Query manager of the session. */
+	private final QueryManager queryManager;
+	/** Indicates if the session is closed. */
+	private boolean closed = false;
+
+
+	/**
+	 * Private constructor for avoid external instances.
+	 * @param  queryManager  Query manager of the session.
+	 */
+	private Session(final QueryManager queryManager) {
+		this.queryManager = queryManager;
+	}
+
+
+	/**
+	 * Opens a session in the current thread.
+	 * @return Session opened.
+	 * @throws JaiberdroidException When Jaiberdroid is not started.
+	 */
+	public static Session open() throws JaiberdroidException {
+		final QueryManager queryManager = JaiberdroidInstance.getQueryManager();
+
+		if (null == queryManager) {
+			throw new JaiberdroidException("Jaiberdroid is not started");
+		}
+		queryManager.beginSession();
+
+		return new Session(queryManager);
+	}
+
+
+	/**
+	 * Executes a work inside a session, that is closed when the work finishes.
+	 * @param  work  Work to execute.
+	 * @return Result of the work.
+	 * @throws JaiberdroidException When there is an error on a query of the work.
+	 */
+	public static <R> R runInSession(final Transaction.Work<R> work) throws JaiberdroidException {
+		final Session session = open();
+
+		try {
+			return work.execute();
+		} finally {
+			session.close();
+		}
+	}
+
+
+	/**
+	 * Removes all the objects of the session, so the next selects create them again.
+	 * @throws JaiberdroidException When the session is closed.
+	 */
+	public void clear() throws JaiberdroidException {
+		if (closed) {
+			throw new JaiberdroidException("The session is closed");
+		}
+
+		queryManager.clearSession();
+	}
+
+
+	/**
+	 * Closes the session. Must be called in a finally block.
+	 * @throws JaiberdroidException When there is no session in the current thread.
+	 */
+	public void close() throws JaiberdroidException {
+		if (!closed) {
+			closed = true;
+			queryManager.endSession();
+		}
+	}
+}
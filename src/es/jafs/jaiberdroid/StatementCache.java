@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Cache of compiled statements, with LRU eviction. Statements are stored with their SQL query as key, so each
+ * entity, operation and condition has its own statement. The cache is linked to a database, if it changes all
+ * the statements are closed. Statements are acquired and released by their users, so a statement removed from
+ * the cache while it's in use is closed when its last user releases it.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+final class StatementCache {
+	/** Map of statements, in access order. */
+	private final Map<String, SQLiteStatement> statements;
+	/** Number of users of each acquired statement. */
+	private final Map<SQLiteStatement, Integer> users = new IdentityHashMap<SQLiteStatement, Integer>();
+	/** Statements removed from the cache that will be closed when they are released. */
+	private final Set<SQLiteStatement> removed = new HashSet<SQLiteStatement>();
+	/** Database of the statements. */
+	private SQLiteDatabase database;
+
+
+	/**
+	 * Creates a new cache.
+	 * @param  maxSize  Maximum number of statements stored.
+	 */
+	StatementCache(final int maxSize) {
+		statements = new LinkedHashMap<String, SQLiteStatement>(maxSize, 0.75f, true) {
+			/** Serial number of the class. */
+			private static final long serialVersionUID = 4017734905524339316L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, SQLiteStatement> eldest) {
+				final boolean remove = size() > maxSize;
+
+				if (remove) {
+					close(eldest.getValue());
+				}
+
+				return remove;
+			}
+		};
+	}
+
+
+	/**
+	 * Acquires a compiled statement, compiling it if is not in cache. The statement must be used inside a
+	 * synchronized block over it, because it can be shared by several threads, and must be released with
+	 * {@link #release(SQLiteStatement)} after its use.
+	 * @param  database  Database where the statement is executed.
+	 * @param  sql       SQL query of the statement.
+	 * @return Compiled statement.
+	 */
+	synchronized SQLiteStatement acquire(final SQLiteDatabase database, final String sql) {
+		if (this.database != database) {
+			clear();
+			this.database = database;
+		}
+
+		SQLiteStatement statement = statements.get(sql);
+		if (null == statement) {
+			statement = database.compileStatement(sql);
+			statements.put(sql, statement);
+		}
+
+		final Integer count = users.get(statement);
+		users.put(statement, (null == count) ? 1 : count + 1);
+
+		return statement;
+	}
+
+
+	/**
+	 * Releases a statement acquired with {@link #acquire(SQLiteDatabase, String)}. If the statement was
+	 * removed from the cache and this is its last user, the statement is closed.
+	 * @param  statement  Statement to release.
+	 */
+	synchronized void release(final SQLiteStatement statement) {
+		final Integer count = users.get(statement);
+
+		if (null == count || count <= 1) {
+			users.remove(statement);
+			if (removed.remove(statement)) {
+				statement.close();
+			}
+		} else {
+			users.put(statement, count - 1);
+		}
+	}
+
+
+	/**
+	 * Closes and removes all the statements. The statements in use are closed when they are released.
+	 */
+	synchronized void clear() {
+		for (final SQLiteStatement statement : statements.values()) {
+			close(statement);
+		}
+		statements.clear();
+		database = null;
+	}
+
+
+	/**
+	 * Closes a statement removed from the cache, or marks it to be closed when it's released if it's in use.
+	 * @param  statement  Statement removed from the cache.
+	 */
+	private void close(final SQLiteStatement statement) {
+		if (users.containsKey(statement)) {
+			removed.add(statement);
+		} else {
+			statement.close();
+		}
+	}
+
+
+	/**
+	 * Binds values and arguments into a statement. The previous bindings are cleared.
+	 * @param  statement  Statement to bind.
+	 * @param  values     Values to bind first, with their native types. Can be null.
+	 * @param  args       String arguments to bind after the values. Can be null.
+	 */
+	static void bind(final SQLiteStatement statement, final Object[] values, final List<String> args) {
+		int index = 1;
+
+		statement.clearBindings();
+		if (null != values) {
+			for (final Object value : values) {
+				DatabaseUtils.bindObjectToProgram(statement, index, value);
+				++index;
+			}
+		}
+		if (null != args) {
+			for (final String argument : args) {
+				if (null == argument) {
+					statement.bindNull(index);
+				} else {
+					statement.bindString(index, argument);
+				}
+				++index;
+			}
+		}
+	}
+}
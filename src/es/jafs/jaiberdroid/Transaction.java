@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+/**
+ * <p>Transaction that groups several queries, of any entity, executed in the current thread. The queries
+ * executed inside it don't open their own transactions, so all of them are committed at once.</p>
+ * <p>Transactions can be nested: a nested transaction is a savepoint, and when it's rolled back only its
+ * changes are undone. Nested transactions must be ended before the transaction that contains them.</p>
+ * <pre>
+ *   final Transaction transaction = Transaction.begin();
+ *   try {
+ *     files.insert(file);
+ *     folders.update(folder);
+ *     transaction.commit();
+ *   } finally {
+ *     transaction.end();
+ *   }
+ * </pre>
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+public final class Transaction {
+	/** Query manager of the transaction. */
+	private final QueryManager queryManager;
+	/** Indicates if the transaction is committed or rolled back. */
+	private boolean ended = false;
+
+
+	/**
+	 * Work executed inside a transaction.
+	 * @param <R> Class of the result.
+	 */
+	public interface Work<R> {
+		/**
+		 * Executes the queries of the work.
+		 * @return Result of the work.
+		 * @throws JaiberdroidException When there is an error on a query.
+		 */
+		R execute() throws JaiberdroidException;
+	}
+
+
+	/**
+	 * Private constructor for avoid external instances.
+	 * @param  queryManager  Query manager of the transaction.
+	 */
+	private Transaction(final QueryManager queryManager) {
+		this.queryManager = queryManager;
+	}
+
+
+	/**
+	 * Begins a transaction in the current thread.
+	 * @return Transaction started.
+	 * @throws JaiberdroidException When Jaiberdroid is not started or the transaction can't be started.
+	 */
+	public static Transaction begin() throws JaiberdroidException {
+		final QueryManager queryManager = JaiberdroidInstance.getQueryManager();
+
+		if (null == queryManager) {
+			throw new JaiberdroidException("Jaiberdroid is not started");
+		}
+		queryManager.beginUnit();
+
+		return new Transaction(queryManager);
+	}
+
+
+	/**
+	 * Executes a work inside a transaction. The transaction is committed when the work finishes, and rolled
+	 * back when it throws an exception.
+	 * @param  work  Work to execute.
+	 * @return Result of the work.
+	 * @throws JaiberdroidException When there is an error on a query of the work.
+	 */
+	public static <R> R runInTransaction(final Work<R> work) throws JaiberdroidException {
+		final Transaction transaction = begin();
+
+		try {
+			final R result = work.execute();
+			transaction.commit();
+			return result;
+		} finally {
+			transaction.end();
+		}
+	}
+
+
+	/**
+	 * Commits the transaction. If it's nested, its changes are committed with the transaction that contains it.
+	 * @throws JaiberdroidException When the transaction is already ended or can't be committed.
+	 */
+	public void commit() throws JaiberdroidException {
+		if (ended) {
+			throw new JaiberdroidException("The transaction is already ended");
+		}
+
+		ended = true;
+		queryManager.endUnit(true);
+	}
+
+
+	/**
+	 * Rolls back the transaction, if it's not committed. Must be called in a finally block.
+	 * @throws JaiberdroidException When the transaction can't be rolled back.
+	 */
+	public void end() throws JaiberdroidException {
+		if (!ended) {
+			ended = true;
+			queryManager.endUnit(false);
+		}
+	}
+}
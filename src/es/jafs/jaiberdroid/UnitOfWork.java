@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * State of the transactions of the user opened by a thread.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+final class UnitOfWork {
+	/** Tables modified inside the transaction. */
+	private final Set<String> tables = new LinkedHashSet<String>();
+	/** Changes made inside each nested transaction opened, published when the first one is committed. */
+	private final List<ChangeSet> changes = new ArrayList<ChangeSet>();
+	/** Number of nested transactions opened. */
+	private int depth = 0;
+
+
+	/**
+	 * Gets the number of nested transactions opened.
+	 * @return Number of transactions opened.
+	 */
+	int getDepth() {
+		return depth;
+	}
+
+
+	/**
+	 * Opens a nested transaction.
+	 */
+	void begin() {
+		++depth;
+		changes.add(new ChangeSet());
+	}
+
+
+	/**
+	 * Closes the last nested transaction. The changes of a nested transaction are added to its parent when
+	 * it's released, and discarded when it's rolled back.
+	 * @param  successful  Boolean value that is true if the transaction is released or committed.
+	 * @return Number of transactions that remain opened.
+	 */
+	int end(final boolean successful) {
+		--depth;
+		if (depth > 0) {
+			final ChangeSet nested = changes.remove(changes.size() - 1);
+			if (successful) {
+				changes.get(changes.size() - 1).addAll(nested);
+			}
+		}
+
+		return depth;
+	}
+
+
+	/**
+	 * Adds a table modified inside the transaction.
+	 * @param  table  Name of the table.
+	 */
+	void addTable(final String table) {
+		tables.add(table);
+	}
+
+
+	/**
+	 * Gets the changes made inside the last nested transaction. After the first transaction is closed, gets
+	 * the changes of all the transactions released.
+	 * @return Set of changes.
+	 */
+	ChangeSet getChanges() {
+		return changes.get(changes.size() - 1);
+	}
+
+
+	/**
+	 * Gets the tables modified inside the transaction.
+	 * @return Set with the names of the tables.
+	 */
+	Set<String> getTables() {
+		return tables;
+	}
+}
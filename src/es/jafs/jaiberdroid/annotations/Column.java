@@ -63,4 +63,11 @@ public @interface Column {
 	 * @return Boolean value that indicates order in index.
 	 */
 	public boolean ascOrder() default true;
+
+	/**
+	 * Dates are stored as Unix Time in milliseconds instead of seconds (defaults false). Only for Date
+	 * fields.
+	 * @return Boolean value that indicates if dates are stored with millisecond precision.
+	 */
+	public boolean millis() default false;
 }
@@ -35,4 +35,18 @@ public @interface Table {
 	 * @return String with the table name.
 	 */
 	public String name() default "";
+
+	/**
+	 * Maximum number of rows of the table kept in memory (default 0, without cache). The rows read are
+	 * cached by id, with LRU eviction, and they are removed when the table is modified.
+	 * @return Number of rows cached.
+	 */
+	public int cacheSize() default 0;
+
+	/**
+	 * Time that the rows are kept in the cache, in milliseconds (default 0, until they are evicted or
+	 * modified). Only used when the cache is enabled with cacheSize.
+	 * @return Milliseconds that the rows are cached.
+	 */
+	public long cacheTtl() default 0;
 }
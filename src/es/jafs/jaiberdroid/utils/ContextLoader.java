@@ -36,6 +36,12 @@ public final class ContextLoader {
 	private static final String CFG_DB_VERSION = "jaiberdroid_version";
 	/** Name of field that stores Jaiberdroid debug mode. */
 	private static final String CFG_DEBUG = "jaiberdroid_debug";
+	/** Name of field that enables the cache of the number of rows of the tables. */
+	private static final String CFG_COUNT_CACHE = "jaiberdroid_count_cache";
+	/** Name of field that enables write-ahead logging. */
+	private static final String CFG_WAL = "jaiberdroid_wal";
+	/** Name of the query cache field. */
+	private static final String CFG_QUERY_CACHE = "jaiberdroid_query_cache";
 
 	/** Type of data for arrays. */
 	private static final String DATA_ARRAY = "array";
@@ -53,6 +59,12 @@ public final class ContextLoader {
 	private int version;
 	/** Indicates if Jaiberdroid is in debug mode. */
 	private boolean debug = false;
+	/** Indicates if the number of rows of the tables is cached. */
+	private boolean countCache = false;
+	/** Indicates if the database uses write-ahead logging. */
+	private boolean wal = false;
+	/** Maximum number of rows of the results cached. */
+	private int queryCache = 0;
 	/** Array of loaded entities. */
 	private String[] entities;
 
@@ -93,6 +105,9 @@ public final class ContextLoader {
 	 */
 	private void load() throws JaiberdroidException {
 		loadDebug();
+		countCache = loadBoolean(CFG_COUNT_CACHE, false);
+		wal = loadBoolean(CFG_WAL, false);
+		queryCache = loadInteger(CFG_QUERY_CACHE, 0);
 		loadEntities();
 		loadDatabase();
 	}
@@ -178,6 +193,53 @@ public final class ContextLoader {
 	}
 
 
+	/**
+	 * Loads an optional boolean value.
+	 * @param  name          Name of the field.
+	 * @param  defaultValue  Value used when the field not exists or is empty.
+	 * @return Boolean value of the field.
+	 */
+	private boolean loadBoolean(final String name, final boolean defaultValue) {
+		boolean value = defaultValue;
+
+		final int id = context.getResources().getIdentifier(name, DATA_STRING, context.getPackageName());
+		if (0 != id) {
+			final String res = context.getResources().getString(id);
+			if (!TextUtils.isEmpty(res)) {
+				value = Boolean.TRUE.toString().equalsIgnoreCase(res);
+			}
+		}
+
+		return value;
+	}
+
+
+	/**
+	 * Loads an optional integer value.
+	 * @param  name          Name of the field.
+	 * @param  defaultValue  Value used when the field not exists or is empty.
+	 * @return Integer value of the field.
+	 * @throws JaiberdroidException When the value is not a number.
+	 */
+	private int loadInteger(final String name, final int defaultValue) throws JaiberdroidException {
+		int value = defaultValue;
+
+		final int id = context.getResources().getIdentifier(name, DATA_STRING, context.getPackageName());
+		if (0 != id) {
+			final String res = context.getResources().getString(id);
+			if (!TextUtils.isEmpty(res)) {
+				try {
+					value = Integer.parseInt(res.trim());
+				} catch (final NumberFormatException e) {
+					throw new JaiberdroidException("Invalid number in " + name + ": " + res);
+				}
+			}
+		}
+
+		return value;
+	}
+
+
 	/**
 	 * Retuns a boolean value that indicates if Jaiberdroid is in debug mode.
 	 * @return Boolean value that indicates if Jaiberdroid is in debug mode.
@@ -187,6 +249,33 @@ public final class ContextLoader {
 	}
 
 
+	/**
+	 * Returns a boolean value that indicates if the number of rows of the tables is cached.
+	 * @return Boolean value that indicates if the count cache is enabled.
+	 */
+	public boolean isCountCache() {
+		return countCache;
+	}
+
+
+	/**
+	 * Returns a boolean value that indicates if the database uses write-ahead logging.
+	 * @return Boolean value that indicates if write-ahead logging is enabled.
+	 */
+	public boolean isWal() {
+		return wal;
+	}
+
+
+	/**
+	 * Returns the maximum number of rows of the results of selects cached.
+	 * @return Number of rows cached, 0 if the query cache is not enabled.
+	 */
+	public int getQueryCache() {
+		return queryCache;
+	}
+
+
 	/**
 	 * Returns a string with database name.
 	 * @return String with database name.
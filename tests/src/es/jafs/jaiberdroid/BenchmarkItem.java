@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import es.jafs.jaiberdroid.annotations.Column;
+import es.jafs.jaiberdroid.annotations.Table;
+
+/**
+ * Entity of the benchmarks, with some columns so reading a row has the usual cost.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+@Table(name = "benchmark_item")
+public class BenchmarkItem {
+	@Column(primary = true, nullable = false)
+	private long _id;
+	@Column(nullable = false)
+	private String name;
+	@Column()
+	private String description;
+	@Column(nullable = false)
+	private int amount;
+	@Column(nullable = false)
+	private boolean active;
+
+
+	public final long get_id() {
+		return _id;
+	}
+
+	public final void set_id(final long _id) {
+		this._id = _id;
+	}
+
+	public final String getName() {
+		return name;
+	}
+
+	public final void setName(final String name) {
+		this.name = name;
+	}
+
+	public final String getDescription() {
+		return description;
+	}
+
+	public final void setDescription(final String description) {
+		this.description = description;
+	}
+
+	public final int getAmount() {
+		return amount;
+	}
+
+	public final void setAmount(final int amount) {
+		this.amount = amount;
+	}
+
+	public final boolean isActive() {
+		return active;
+	}
+
+	public final void setActive(final boolean active) {
+		this.active = active;
+	}
+}
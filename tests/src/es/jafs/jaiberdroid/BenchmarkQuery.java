@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.List;
+
+import es.jafs.jaiberdroid.Query.Type;
+
+/**
+ * Queries of the benchmarks. Besides the usual methods, keeps the old way to find a row by its id: a select
+ * of the whole row without limit, read into a list.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+public final class BenchmarkQuery extends GenericQuery<BenchmarkItem> {
+	/**
+	 * Finds an item by its id as findByPk() did before reading with LIMIT 1.
+	 * @param  id  Id of the item to find.
+	 * @return Item found or null if not exists.
+	 * @throws JaiberdroidException When the query can't be executed.
+	 */
+	@SuppressWarnings("unchecked")
+	public BenchmarkItem findByPkSelect(final long id) throws JaiberdroidException {
+		BenchmarkItem current = null;
+
+		final Query query = new Query(Type.SELECT, BenchmarkItem.class);
+		query.addArg(id);
+		query.setCondition(JaiberdroidSql.KEY_CONDITION);
+
+		final List<BenchmarkItem> resul = (List<BenchmarkItem>) executeQuery(query);
+		if (null != resul && !resul.isEmpty()) {
+			current = resul.get(0);
+		}
+
+		return current;
+	}
+
+
+	/**
+	 * Checks whether an item exists as exists() did before using a compiled statement.
+	 * @param  id  Id of the item to find.
+	 * @return Boolean value that is true if the item exists.
+	 * @throws JaiberdroidException When the query can't be executed.
+	 */
+	public boolean existsSelect(final long id) throws JaiberdroidException {
+		return (null != findByPkSelect(id));
+	}
+}
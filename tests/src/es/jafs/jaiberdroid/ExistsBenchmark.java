@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2013 JAFS.es
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package es.jafs.jaiberdroid;
+
+import java.util.Iterator;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/**
+ * Compares exists() and findByPk() with the select that both used before, on a table with a large number
+ * of rows. Half of the looked up ids don't exist. The times are written to the log with the tag
+ * "ExistsBenchmark"; the tests only check that old and new ways return the same results.
+ * @author  Jose Antonio Fuentes Santiago
+ * @version 0.5
+ */
+public class ExistsBenchmark extends AndroidTestCase {
+	/** Tag of the log messages. */
+	private static final String TAG = "ExistsBenchmark";
+	/** Number of rows of the table. */
+	private static final int ROWS = 100000;
+	/** Number of lookups of each measure. */
+	private static final int LOOKUPS = 2000;
+	/** Number of lookups before measuring. */
+	private static final int WARM_UP = 200;
+	/** Rows inserted by each transaction while filling the table. */
+	private static final int COMMIT_INTERVAL = 10000;
+
+	/** Whether the database is started and filled. */
+	private static boolean started = false;
+
+	/** Queries of the items. */
+	private BenchmarkQuery query;
+
+
+	/**
+	 * Starts the database and fills the table the first time.
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		synchronized (ExistsBenchmark.class) {
+			if (!started) {
+				JaiberdroidInstance.createInstance(getContext());
+				JaiberdroidInstance.start();
+				started = true;
+			}
+		}
+
+		query = new BenchmarkQuery();
+		if (ROWS != query.count()) {
+			query.removeAll();
+			query.insertAll(new ItemIterator(), COMMIT_INTERVAL);
+		}
+	}
+
+
+	/**
+	 * Compares exists() with the select of the whole row.
+	 * @throws JaiberdroidException When a query can't be executed.
+	 */
+	public void testExists() throws JaiberdroidException {
+		for (int i = 0; i < WARM_UP; ++i) {
+			assertEquals(query.existsSelect(getId(i)), query.exists(getId(i)));
+		}
+
+		long start = System.nanoTime();
+		int found = 0;
+		for (int i = 0; i < LOOKUPS; ++i) {
+			if (query.existsSelect(getId(i))) {
+				++found;
+			}
+		}
+		final long old = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int foundNew = 0;
+		for (int i = 0; i < LOOKUPS; ++i) {
+			if (query.exists(getId(i))) {
+				++foundNew;
+			}
+		}
+		final long current = System.nanoTime() - start;
+
+		log("exists()", old, current);
+		assertEquals(found, foundNew);
+	}
+
+
+	/**
+	 * Compares findByPk() with the select without limit read into a list.
+	 * @throws JaiberdroidException When a query can't be executed.
+	 */
+	public void testFindByPk() throws JaiberdroidException {
+		for (int i = 0; i < WARM_UP; ++i) {
+			assertEquals(null == query.findByPkSelect(getId(i)), null == query.findByPk(getId(i)));
+		}
+
+		long start = System.nanoTime();
+		long amounts = 0;
+		for (int i = 0; i < LOOKUPS; ++i) {
+			final BenchmarkItem item = query.findByPkSelect(getId(i));
+			if (null != item) {
+				amounts += item.getAmount();
+			}
+		}
+		final long old = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		long amountsNew = 0;
+		for (int i = 0; i < LOOKUPS; ++i) {
+			final BenchmarkItem item = query.findByPk(getId(i));
+			if (null != item) {
+				amountsNew += item.getAmount();
+			}
+		}
+		final long current = System.nanoTime() - start;
+
+		log("findByPk()", old, current);
+		assertEquals(amounts, amountsNew);
+	}
+
+
+	/**
+	 * Gets the id of a lookup. The ids are spread over the table and the odd lookups are after the last row.
+	 * @param  lookup  Number of the lookup.
+	 * @return Id to look up.
+	 */
+	private static long getId(final int lookup) {
+		final long id = ((long) lookup * 7919L) % ROWS + 1;
+		return (0 == lookup % 2) ? id : id + ROWS;
+	}
+
+
+	/**
+	 * Writes the times of a measure to the log.
+	 * @param  method   Name of the measured method.
+	 * @param  old      Nanoseconds of the old way.
+	 * @param  current  Nanoseconds of the new way.
+	 */
+	private static void log(final String method, final long old, final long current) {
+		Log.i(TAG, method + " on " + ROWS + " rows: old " + (old / LOOKUPS) + " ns, new " + (current / LOOKUPS)
+				+ " ns per lookup (" + (old * 100 / Math.max(current, 1)) + "% of new)");
+	}
+
+
+
+	/**
+	 * Creates the items of the table without keeping them in memory.
+	 * @author  Jose Antonio Fuentes Santiago
+	 * @version 0.5
+	 */
+	private static final class ItemIterator implements Iterator<BenchmarkItem> {
+		/** Number of items created. */
+		private int created = 0;
+
+
+		@Override
+		public boolean hasNext() {
+			return created < ROWS;
+		}
+
+
+		@Override
+		public BenchmarkItem next() {
+			++created;
+
+			final BenchmarkItem item = new BenchmarkItem();
+			item.set_id(created);
+			item.setName("Item " + created);
+			item.setDescription("Description of the item " + created);
+			item.setAmount(created % 1000);
+			item.setActive(0 == created % 3);
+			return item;
+		}
+
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}